@@ -0,0 +1,51 @@
+package com.saygindogu.sheepgame.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link SimulationEngine#checkCollisions()} with a given number of resources on
+ * the field, for the discrete test and the swept one. Difficulty 10 keeps resources small
+ * enough for the larger counts to fit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class CollisionBenchmark {
+
+    @Param({"10", "100", "400"})
+    public int objectCount;
+
+    @Param({"DISCRETE", "SWEPT"})
+    public SimulationEngine.CollisionMode mode;
+
+    private SimulationEngine engine;
+
+    @Setup
+    public void setUp() {
+        engine = SpawnBenchmark.filledEngine(objectCount);
+        engine.setCollisionMode(mode);
+        // Anything under the sheep is eaten on the first call; after that the field is stable
+        engine.checkCollisions();
+    }
+
+    @Benchmark
+    public boolean checkCollisions() {
+        engine.checkCollisions();
+        return engine.getSheep().isOnRestSpot();
+    }
+}
@@ -0,0 +1,69 @@
+package com.saygindogu.sheepgame.engine;
+
+import com.saygindogu.sheepgame.model.Grass;
+import com.saygindogu.sheepgame.model.LocatableShape;
+import com.saygindogu.sheepgame.model.Wolf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_X;
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_Y;
+
+/**
+ * Cost of the nearest-neighbour queries bots and the HUD use, from points spread over the
+ * field: the three nearest wolves, and the nearest grass among a given number of
+ * resources. Small counts are scanned, larger ones searched ring by ring.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class NearestBenchmark {
+
+    @Param({"10", "100", "400"})
+    public int objectCount;
+
+    private SimulationEngine engine;
+    private final Wolf[] wolves = new Wolf[3];
+    private final LocatableShape[] objects = new LocatableShape[1];
+    private final double[] distances = new double[3];
+    private int query;
+
+    @Setup
+    public void setUp() {
+        engine = SpawnBenchmark.filledEngine(objectCount);
+    }
+
+    @Benchmark
+    public int nearestWolves() {
+        int q = query++;
+        return engine.nearestWolves(queryX(q), queryY(q), wolves.length, wolves, distances);
+    }
+
+    @Benchmark
+    public int nearestGrass() {
+        int q = query++;
+        return engine.nearestObjects(queryX(q), queryY(q), 1, Grass.class, objects, distances);
+    }
+
+    private static double queryX(int q) {
+        return (q * 37) % GAME_SIZE_X;
+    }
+
+    private static double queryY(int q) {
+        return (q * 53) % GAME_SIZE_Y;
+    }
+}
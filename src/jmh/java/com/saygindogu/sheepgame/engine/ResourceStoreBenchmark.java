@@ -0,0 +1,52 @@
+package com.saygindogu.sheepgame.engine;
+
+import com.saygindogu.sheepgame.model.Grass;
+import com.saygindogu.sheepgame.model.LocatableShape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of eating one resource somewhere in a large field and spawning it back, as far as
+ * {@link ResourceStore} is concerned. Removal should not depend on the field's size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class ResourceStoreBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int resourceCount;
+
+    private ResourceStore store;
+    private RandomStream random;
+
+    @Setup
+    public void setUp() {
+        store = new ResourceStore();
+        random = new RandomStream(1);
+        for (int i = 0; i < resourceCount; i++) {
+            store.insert(new Grass(100, i % 1000, i / 1000, 20, 20));
+        }
+    }
+
+    @Benchmark
+    public long removeAndRespawn() {
+        LocatableShape eaten = store.get(random.nextInt(store.size()));
+        store.delete(eaten);
+        return store.insert(eaten);
+    }
+}
@@ -0,0 +1,72 @@
+package com.saygindogu.sheepgame.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of copying a match for rollout planning: taking a snapshot into a reused buffer,
+ * restoring it, forking a whole engine, and a short rollout from a restored snapshot.
+ * Difficulty sets the number of wolves, from none at 1 to four at 9.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+
+    private static final int ROLLOUT_TICKS = 20;
+
+    @Param({"1", "5", "9"})
+    public int difficulty;
+
+    private SimulationEngine engine;
+    private Snapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        engine = new SimulationEngine(difficulty, 1);
+        // Far enough in for a resource spawn, short of any wolf reaching the idle sheep
+        for (int i = 0; i < 100; i++) {
+            engine.tick();
+        }
+        snapshot = engine.snapshot();
+    }
+
+    @Benchmark
+    public Snapshot snapshot() {
+        return engine.snapshot(snapshot);
+    }
+
+    @Benchmark
+    public long restore() {
+        engine.restore(snapshot);
+        return engine.getTickCount();
+    }
+
+    @Benchmark
+    public SimulationEngine fork() {
+        return engine.fork();
+    }
+
+    @Benchmark
+    public long rollout() {
+        engine.restore(snapshot);
+        for (int i = 0; i < ROLLOUT_TICKS; i++) {
+            engine.tick();
+        }
+        return engine.getTickCount();
+    }
+}
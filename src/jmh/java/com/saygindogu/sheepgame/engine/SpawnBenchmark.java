@@ -0,0 +1,66 @@
+package com.saygindogu.sheepgame.engine;
+
+import com.saygindogu.sheepgame.model.LocatableShape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@link SimulationEngine#createNewObject()} call as the field fills up and
+ * random candidates give way to the occupancy table. A resource that does get placed is
+ * removed again, so the fill level stays put for the whole run; that also means every
+ * crowded call rebuilds the table, the worst case.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class SpawnBenchmark {
+
+    private static final int DIFFICULTY = 10;
+
+    @Param({"10", "100", "400"})
+    public int objectCount;
+
+    private SimulationEngine engine;
+
+    @Setup
+    public void setUp() {
+        engine = filledEngine(objectCount);
+    }
+
+    @Benchmark
+    public int createNewObject() {
+        List<LocatableShape> objects = engine.getOtherObjects();
+        int before = objects.size();
+        engine.createNewObject();
+        if (objects.size() > before) {
+            engine.removeObject(objects.get(objects.size() - 1));
+        }
+        return objects.size();
+    }
+
+    /**
+     * @return an engine with {@code objectCount} resources placed, or as many as fit
+     */
+    static SimulationEngine filledEngine(int objectCount) {
+        SimulationEngine engine = new SimulationEngine(DIFFICULTY, 1);
+        for (int attempt = 0; attempt < objectCount * 100 && engine.getOtherObjects().size() < objectCount; attempt++) {
+            engine.createNewObject();
+        }
+        return engine;
+    }
+}
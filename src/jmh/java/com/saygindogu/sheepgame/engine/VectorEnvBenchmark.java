@@ -0,0 +1,58 @@
+package com.saygindogu.sheepgame.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.FloatBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@link VectorEnv#step(int[])} over a batch of matches with random actions,
+ * auto-resets included. Allocation per step should only come from resets and from new
+ * resources spawning.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class VectorEnvBenchmark {
+
+    private static final int DIFFICULTY = 5;
+    private static final int NEAREST_WOLVES = 3;
+    private static final int TICKS_PER_STEP = 4;
+
+    @Param({"16", "256"})
+    public int numEnvs;
+
+    private VectorEnv env;
+    private int[] actions;
+    private final SplittableRandom random = new SplittableRandom(1);
+
+    @Setup
+    public void setUp() {
+        env = new VectorEnv(numEnvs, DIFFICULTY, NEAREST_WOLVES, TICKS_PER_STEP, 0);
+        env.reset(1);
+        actions = new int[numEnvs];
+    }
+
+    @Benchmark
+    public FloatBuffer step() {
+        for (int i = 0; i < numEnvs; i++) {
+            actions[i] = random.nextInt(16);
+        }
+        env.step(actions);
+        return env.getObservations();
+    }
+}
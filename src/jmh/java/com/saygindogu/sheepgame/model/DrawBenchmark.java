@@ -0,0 +1,66 @@
+package com.saygindogu.sheepgame.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_X;
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_Y;
+
+/**
+ * Cost of one {@link Drawable#draw} into an offscreen image the size of the field. Once
+ * warmed up this measures the sprite-cache hit path; the GC profiler shows what each
+ * draw still allocates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class DrawBenchmark {
+
+    @Param({"grass", "water", "restingSpot", "sheep", "wolf"})
+    public String kind;
+
+    private Drawable drawable;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    @Setup
+    public void setUp() {
+        drawable = switch (kind) {
+            case "grass" -> new Grass(100, 300, 200, 60, 45);
+            case "water" -> new Water(100, 300, 200, 60, 45);
+            case "restingSpot" -> new RestingSpot(300, 200, 80, 70, 5);
+            case "sheep" -> new Sheep(5);
+            case "wolf" -> new Wolf(4.5, 1.6, 275, 1);
+            default -> throw new IllegalArgumentException("Unknown drawable: " + kind);
+        };
+        image = new BufferedImage(GAME_SIZE_X, GAME_SIZE_Y, BufferedImage.TYPE_INT_ARGB);
+        g = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public void draw() {
+        drawable.draw(g);
+    }
+}
@@ -0,0 +1,74 @@
+package com.saygindogu.sheepgame.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of advancing a flock by one tick behind a leader that keeps changing direction,
+ * and of a wolf's nearest-follower query against it. The flock starts scattered over a
+ * square holding about one follower per 60 px cell, so neighbourhoods stay realistic as
+ * it grows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class FlockBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int flockSize;
+
+    private Flock flock;
+    private Sheep leader;
+    private int side;
+    private int ticks;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        side = (int) Math.ceil(Math.sqrt(flockSize)) * 60;
+        leader = new Sheep(5);
+        leader.setWorldSize(side, side);
+        flock = new Flock(flockSize);
+        flock.setWorldSize(side, side);
+        flock.setMaxSpeed(leader.getMaxSpeed());
+        for (int i = 0; i < flockSize; i++) {
+            flock.add(random.nextDouble() * side, random.nextDouble() * side);
+        }
+        flock.ensureGrid();
+    }
+
+    @Benchmark
+    public int tick() {
+        if ((ticks++ & 63) == 0) {
+            int directions = ticks >>> 6;
+            leader.setMovingUp((directions & 1) != 0);
+            leader.setMovingDown((directions & 2) != 0);
+            leader.setMovingLeft((directions & 4) != 0);
+            leader.setMovingRight((directions & 8) != 0);
+        }
+        leader.tick();
+        flock.tick(leader);
+        return flock.getLocationX(0);
+    }
+
+    @Benchmark
+    public int nearest() {
+        int t = ticks++;
+        return flock.nearest((t * 37) % side, (t * 53) % side, 400);
+    }
+}
@@ -0,0 +1,53 @@
+package com.saygindogu.sheepgame.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_X;
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_Y;
+
+/**
+ * Cost of one {@link LocatableShape#overlaps} test, over a mix of hits and misses
+ * spread across the field.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class OverlapsBenchmark {
+
+    private static final int SHAPES = 1024;
+
+    private LocatableShape[] shapes;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        shapes = new LocatableShape[SHAPES];
+        for (int i = 0; i < SHAPES; i++) {
+            int w = 5 + random.nextInt(70);
+            int h = 5 + random.nextInt(70);
+            shapes[i] = new Grass(1, random.nextInt(GAME_SIZE_X - w), random.nextInt(GAME_SIZE_Y - h), w, h);
+        }
+    }
+
+    @Benchmark
+    public boolean overlaps() {
+        int i = index++ & (SHAPES - 1);
+        return shapes[i].overlaps(shapes[(i * 31 + 7) & (SHAPES - 1)]);
+    }
+}
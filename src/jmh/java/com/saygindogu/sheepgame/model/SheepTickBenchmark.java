@@ -0,0 +1,48 @@
+package com.saygindogu.sheepgame.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@link Sheep#tick()}. The held directions change every 64 ticks so the
+ * sheep keeps accelerating, braking and tiring instead of resting against a wall.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class SheepTickBenchmark {
+
+    private Sheep sheep;
+    private int ticks;
+
+    @Setup
+    public void setUp() {
+        sheep = new Sheep(5);
+    }
+
+    @Benchmark
+    public int tick() {
+        if ((ticks++ & 63) == 0) {
+            int directions = ticks >>> 6;
+            sheep.setMovingUp((directions & 1) != 0);
+            sheep.setMovingDown((directions & 2) != 0);
+            sheep.setMovingLeft((directions & 4) != 0);
+            sheep.setMovingRight((directions & 8) != 0);
+        }
+        sheep.tick();
+        return sheep.getLocationX();
+    }
+}
@@ -0,0 +1,94 @@
+package com.saygindogu.sheepgame.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_X;
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_Y;
+
+/**
+ * Cost of advancing a whole pack by one tick, through {@link WolfPack#tick(int, int)} and
+ * through the per-wolf {@link Wolf#tick(int, int)} handles. The sheep circles the field
+ * so wolves keep switching between roaming and chasing. With obstacles, a wall with one gap
+ * splits the field and chasing wolves steer by a {@link FlowField} rebuilt as the sheep
+ * moves between cells. With a coast length, roaming wolves far from the sheep coast
+ * between full ticks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class WolfTickBenchmark {
+
+    @Param({"1", "4", "64", "1024", "16384"})
+    public int packSize;
+
+    @Param({"false", "true"})
+    public boolean obstacles;
+
+    @Param({"0", "60"})
+    public int coastTicks;
+
+    private WolfPack pack;
+    private FlowField flowField;
+    private Wolf[] wolves;
+    private int ticks;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        pack = new WolfPack(packSize);
+        flowField = new FlowField(GAME_SIZE_X, GAME_SIZE_Y, 32);
+        if (obstacles) {
+            flowField.setBlocked(GAME_SIZE_X / 2 - 20, 0, 40, GAME_SIZE_Y * 4 / 5, true);
+        }
+        pack.setFlowField(flowField);
+        pack.setLevelOfDetail(coastTicks, 8.0);
+        wolves = new Wolf[packSize];
+        for (int i = 0; i < packSize; i++) {
+            wolves[i] = pack.add(4.5, 1.6, 275, random.nextLong());
+        }
+    }
+
+    @Benchmark
+    public int packTick() {
+        int t = ticks++;
+        flowField.update(sheepX(t), sheepY(t));
+        pack.tick(sheepX(t), sheepY(t));
+        return pack.get(0).getLocationX();
+    }
+
+    @Benchmark
+    public int handleTick() {
+        int t = ticks++;
+        int sx = sheepX(t);
+        int sy = sheepY(t);
+        flowField.update(sx, sy);
+        for (Wolf w : wolves) {
+            w.tick(sx, sy);
+        }
+        return wolves[0].getLocationX();
+    }
+
+    private static int sheepX(int tick) {
+        return (int) (GAME_SIZE_X / 2 + Math.cos(tick * 0.01) * GAME_SIZE_X / 3);
+    }
+
+    private static int sheepY(int tick) {
+        return (int) (GAME_SIZE_Y / 2 + Math.sin(tick * 0.01) * GAME_SIZE_Y / 3);
+    }
+}
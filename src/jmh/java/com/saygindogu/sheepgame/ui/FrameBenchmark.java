@@ -0,0 +1,73 @@
+package com.saygindogu.sheepgame.ui;
+
+import com.saygindogu.sheepgame.SheepGame;
+import com.saygindogu.sheepgame.engine.SimulationEngine;
+import com.saygindogu.sheepgame.engine.WorldFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One steady-state frame of the active renderer: pick up a published frame, then draw
+ * the static layer and every actor. The GC profiler's {@code gc.alloc.rate.norm} should stay at
+ * zero; anything above it is per-frame garbage. A 100000 px world should cost the same
+ * per frame as the screen-sized one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class FrameBenchmark {
+
+    private static final Color BACKGROUND = new Color(238, 238, 238);
+
+    @Param({"1", "5", "10"})
+    public int difficulty;
+
+    @Param({"1200", "100000"})
+    public int worldSize;
+
+    private WorldFrame worldFrame;
+    private FrameRenderer renderer;
+    private Graphics2D g;
+
+    @Setup
+    public void setUp() {
+        SimulationEngine engine = new SimulationEngine(difficulty, 1, SimulationEngine.TICK_MILLIS,
+                worldSize, Math.max(worldSize, SheepGame.GAME_SIZE_Y));
+        engine.getSheep().goRight();
+        engine.getSheep().goDown();
+        engine.step(5_000);
+        worldFrame = WorldFrame.capture(engine, null, 0);
+        renderer = new FrameRenderer();
+        BufferedImage image = new BufferedImage(SheepGame.GAME_SIZE_X, SheepGame.GAME_SIZE_Y, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public void frame() {
+        renderer.prepare(worldFrame, 0.5, null, BACKGROUND);
+        renderer.draw(g);
+    }
+}
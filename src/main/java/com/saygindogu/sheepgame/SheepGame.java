@@ -1,15 +1,21 @@
 package com.saygindogu.sheepgame;
 
-import com.saygindogu.sheepgame.model.*;
+import com.saygindogu.sheepgame.engine.ReplayRecorder;
+import com.saygindogu.sheepgame.engine.SheepCommand;
+import com.saygindogu.sheepgame.engine.SimulationEngine;
+import com.saygindogu.sheepgame.engine.SimulationThread;
+import com.saygindogu.sheepgame.engine.WorldFrame;
 import com.saygindogu.sheepgame.ui.*;
-import lombok.Getter;
 
 import java.awt.BorderLayout;
 import java.awt.CardLayout;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
@@ -22,199 +28,106 @@ public class SheepGame {
 	public static final int GAME_SIZE_Y = 800;
 	public static final int TIMER_CONSTANT = 10000;
 
+	// Longest stretch of wall-clock time replayed in one go after the simulation thread stalls
+	private static final long MAX_CATCH_UP_MILLIS = 250;
+
+	// -Dsheepgame.render=active draws on a dedicated render thread instead of Swing repaints
+	private static final boolean ACTIVE_RENDERING = "active".equals( System.getProperty( "sheepgame.render"));
+	private static final int FPS_CAP = Integer.getInteger( "sheepgame.fpsCap", 0);
+	private static final boolean VSYNC = !"false".equals( System.getProperty( "sheepgame.vsync"));
+	private static final boolean SHOW_FRAME_STATS = Boolean.getBoolean( "sheepgame.frameStats");
+	// -Dsheepgame.tickMillis=33 runs the simulation at about 30 Hz; frames are interpolated
+	private static final int TICK_MILLIS = Integer.getInteger( "sheepgame.tickMillis", SimulationEngine.TICK_MILLIS);
+	// -Dsheepgame.replay=match.replay records each match to that file, overwriting the last one
+	private static final String REPLAY_FILE = System.getProperty( "sheepgame.replay");
+	// -Dsheepgame.worldWidth=100000 plays on a field that streams in around the sheep as it goes
+	private static final int WORLD_WIDTH = Integer.getInteger( "sheepgame.worldWidth", GAME_SIZE_X);
+	private static final int WORLD_HEIGHT = Integer.getInteger( "sheepgame.worldHeight", GAME_SIZE_Y);
+	// -Dsheepgame.flock=500 gives the sheep that many followers for the wolves to pick off
+	private static final int FLOCK_SIZE = Integer.getInteger( "sheepgame.flock", 0);
+
 	private static final String MENU_CARD = "menu";
 	private static final String GAME_CARD = "game";
 
-	Random random = new Random();
-	@Getter
-	Sheep sheep;
-	@Getter
-	List<Wolf> wolves = new ArrayList<>();
-	List<RestingSpot> restingSpots = new ArrayList<>();
-	List<LocatableShape> otherObjects;
+	SimulationThread simulation;
 	List<SheepGameView> views;
-	Timer timer;
-	Timer physicsTimer;
-	int difficultyLevel;
+	Timer viewTimer;
 
 	public SheepGame( int difficultyLevel){
-		if( difficultyLevel > 10){
-			this.difficultyLevel = 10;
-		}
-		else if( difficultyLevel <= 0)
-		{
-			this.difficultyLevel = 1;
+		SimulationEngine engine = new SimulationEngine( difficultyLevel, ThreadLocalRandom.current().nextLong(), TICK_MILLIS,
+				WORLD_WIDTH, WORLD_HEIGHT);
+		if( FLOCK_SIZE > 0 ){
+			engine.spawnFlock( FLOCK_SIZE);
+		}
+		if( REPLAY_FILE != null ){
+			try{
+				// Finished by the simulation thread when it stops
+				engine.setRecorder( new ReplayRecorder( Path.of( REPLAY_FILE)));
+			}
+			catch( IOException e){
+				System.err.println( "Not recording a replay: " + e);
+			}
 		}
-		else
-			this.difficultyLevel = difficultyLevel;
-
-		sheep = new Sheep(this.difficultyLevel);
+		simulation = new SimulationThread( engine, MAX_CATCH_UP_MILLIS);
 		views = new ArrayList<>();
 
-		timer = new Timer( TIMER_CONSTANT / 10 * (this.difficultyLevel / 2 + 1), e -> {
-			createNewObject();
+		// The rules run on the simulation thread; the EDT only reads published frames.
+		// Views refresh at the default frame pace even when ticks are longer, so they
+		// get interpolated positions in between
+		viewTimer = new Timer( SimulationEngine.TICK_MILLIS, e -> {
 			updateViews();
-		});
-		physicsTimer = new Timer( 16, e -> {
-			sheep.tick();
-			for( Wolf w : wolves ){
-				w.tick( sheep.getLocationX(), sheep.getLocationY());
+			if( isGameOver() ){
+				viewTimer.stop();
 			}
-			updateViews();
 		});
-		initilize( 11 - this.difficultyLevel);
-		timer.start();
-		physicsTimer.start();
+		simulation.start();
+		viewTimer.start();
 	}
 
-	public boolean isGameOver(){
-		if( !sheep.isAlive() )
-		{
-			timer.stop();
-			physicsTimer.stop();
-			return true;
-		}
-		return false;
+	/**
+	 * @return the latest world state published by the simulation thread, held until
+	 * it is given back with {@link #releaseFrame}
+	 */
+	public WorldFrame acquireFrame(){
+		return simulation.acquireFrame();
 	}
 
-	public void addView( SheepGameView view ){
-		views.add( view);
-		updateViews();
+	/**
+	 * Lets the simulation thread reuse a frame from {@link #acquireFrame()}.
+	 */
+	public void releaseFrame( WorldFrame frame){
+		simulation.releaseFrame( frame);
 	}
 
-	public void updateViews(){
-		checkCollisions();
-		for( SheepGameView view : views )
-		{
-			view.update( this);
-		}
+	/**
+	 * Queues a steering input for the sheep; applied before the next tick.
+	 */
+	public void submit( SheepCommand command){
+		simulation.submit( command);
 	}
 
-	private void checkCollisions(){
-		// Check wolf-sheep collisions first
-		for( Wolf w : wolves ){
-			if( w.overlaps( sheep) ){
-				sheep.die();
-				return;
-			}
-		}
-
-		// Check resting spot collisions (never removed)
-		sheep.setOnRestSpot( false);
-		for( RestingSpot rs : restingSpots ){
-			if( sheep.overlaps( rs) ){
-				sheep.setOnRestSpot( true);
-				sheep.rest( rs);
-			}
-		}
-
-		Iterator<LocatableShape> it = otherObjects.iterator();
-		while( it.hasNext() ){
-			LocatableShape obj = it.next();
-			if( sheep.overlaps( obj) ){
-				if( obj instanceof Grass ){
-					sheep.eat( (Grass) obj);
-					it.remove();
-				}
-				else if( obj instanceof Water ){
-					sheep.drink( (Water) obj);
-					it.remove();
-				}
-			}
-		}
+	public boolean isGameOver(){
+		WorldFrame frame = acquireFrame();
+		boolean over = frame.isOver();
+		releaseFrame( frame);
+		return over;
 	}
 
-	private void initilize( int hardness ){
-		otherObjects = new ArrayList<>();
-
-		for( int i = 0; i < hardness; i++){
-			createNewObject();
-		}
-
-		// Create wolves based on difficulty
-		int wolfCount = Math.max(0, (difficultyLevel - 1) / 2);
-		double chaseSpeed = 2.0 + difficultyLevel * 0.25;
-		double roamSpeed = 0.8 + difficultyLevel * 0.15;
-		double detectRadius = 150 + difficultyLevel * 25;
-		wolves = new ArrayList<>();
-		for( int i = 0; i < wolfCount; i++){
-			wolves.add( new Wolf( chaseSpeed, roamSpeed, detectRadius));
-		}
-
-		// Create resting spots — fewer at higher difficulty
-		int restCount = Math.max(1, 4 - difficultyLevel / 3);
-		restingSpots = new ArrayList<>();
-		double scale = 1.0 - (difficultyLevel - 1) * 0.05;
-		int minRestSize = Math.max(30, (int)(60 * scale));
-		int restSizeRange = Math.max(20, (int)(40 * scale));
-		for( int i = 0; i < restCount; i++){
-			for( int attempt = 0; attempt < 20; attempt++){
-				int w = minRestSize + random.nextInt(restSizeRange);
-				int h = minRestSize + random.nextInt(restSizeRange);
-				int locX = random.nextInt(GAME_SIZE_X - w);
-				int locY = random.nextInt(GAME_SIZE_Y - h);
-				RestingSpot rs = new RestingSpot(locX, locY, w, h, difficultyLevel);
-				if( !isOverlaping(rs) && !isOverlapingRestingSpots(rs) ){
-					restingSpots.add(rs);
-					break;
-				}
-			}
-		}
+	public void stop(){
+		viewTimer.stop();
+		simulation.stop();
 	}
 
-	private void createNewObject() {
-		// Scale size and value: difficulty 1 → full, difficulty 10 → 55%
-		double scale = 1.0 - (difficultyLevel - 1) * 0.05;
-
-		int oType = random.nextInt( 2);
-		int maxSize = Math.max(10, (int)(70 * scale));
-		int minSize = Math.max(5, (int)(20 * scale));
-		int height = random.nextInt( maxSize) + minSize;
-		int width = random.nextInt( maxSize) + minSize;
-		int locX = random.nextInt( GAME_SIZE_X);
-		int locY = random.nextInt( GAME_SIZE_Y);
-		int value = random.nextInt( Math.max(1, (int)(300 * scale)));
-
-		if( oType == 0){
-			Grass grass = new Grass( value, locX, locY, width, height);
-			if( !isOverlaping( grass) && !isOverlapingRestingSpots( grass) )
-			{
-				otherObjects.add( grass);
-			}
-		}
-		else if( oType == 1){
-			Water water = new Water( value, locX, locY, width, height);
-			if( !isOverlaping( water) && !isOverlapingRestingSpots( water) )
-			{
-				otherObjects.add( water);
-			}
-
-		}
-
+	public void addView( SheepGameView view ){
+		views.add( view);
 		updateViews();
-
 	}
 
-	private boolean isOverlaping( LocatableShape shape) {
-
-		for( LocatableShape other : otherObjects )
+	public void updateViews(){
+		for( SheepGameView view : views )
 		{
-			if( shape.overlaps( other))
-			{
-				return true;
-			}
-		}
-
-		return false;
-	}
-
-	private boolean isOverlapingRestingSpots( LocatableShape shape) {
-		for( RestingSpot rs : restingSpots ){
-			if( shape.overlaps( rs) ){
-				return true;
-			}
+			view.update( this);
 		}
-		return false;
 	}
 
 	private static JFrame frame;
@@ -236,6 +149,16 @@ public class SheepGame {
 		frame = new JFrame("Sheep Game");
 		frame.add( cards);
 		frame.setDefaultCloseOperation( JFrame.EXIT_ON_CLOSE);
+		// Runs before the exit, so a match being recorded still gets its replay finished
+		frame.addWindowListener( new WindowAdapter(){
+			@Override
+			public void windowClosing( WindowEvent e){
+				if( currentGame != null ){
+					currentGame.stop();
+					currentGame = null;
+				}
+			}
+		});
 		frame.pack();
 		frame.setVisible( true);
 
@@ -246,12 +169,19 @@ public class SheepGame {
 		gameContainer.removeAll();
 
 		currentGame = new SheepGame( difficulty);
-		SheepGameVisualViewPanel sgvp = new SheepGameVisualViewPanel( currentGame);
 		SheepHungerPanel hunger = new SheepHungerPanel( currentGame);
-		currentGame.addView( sgvp);
+		if( ACTIVE_RENDERING ){
+			ActiveRenderCanvas canvas = new ActiveRenderCanvas( currentGame, FPS_CAP, VSYNC, SHOW_FRAME_STATS);
+			currentGame.addView( canvas);
+			gameContainer.add( canvas, BorderLayout.CENTER);
+		}
+		else{
+			SheepGameVisualViewPanel sgvp = new SheepGameVisualViewPanel( currentGame);
+			currentGame.addView( sgvp);
+			gameContainer.add( sgvp, BorderLayout.CENTER);
+		}
 		currentGame.addView( hunger);
 
-		gameContainer.add( sgvp, BorderLayout.CENTER);
 		gameContainer.add( hunger, BorderLayout.EAST);
 
 		// Remove old key listeners and add new one
@@ -267,8 +197,7 @@ public class SheepGame {
 
 	static void returnToMenu(){
 		if( currentGame != null){
-			currentGame.timer.stop();
-			currentGame.physicsTimer.stop();
+			currentGame.stop();
 			currentGame = null;
 		}
 		gameContainer.removeAll();
@@ -281,21 +210,4 @@ public class SheepGame {
 		SwingUtilities.invokeLater( () -> createAndShowGUI() );
 	}
 
-	public Drawable[] getDrawables() {
-		Drawable[] drawables = new Drawable[ restingSpots.size() + otherObjects.size() + wolves.size() + 1];
-
-		int idx = 0;
-		for( int i = 0; i < restingSpots.size(); i++){
-			drawables[idx++] = restingSpots.get(i);
-		}
-		for( int i = 0; i < otherObjects.size(); i++){
-			drawables[idx++] = otherObjects.get(i);
-		}
-		for( int i = 0; i < wolves.size(); i++){
-			drawables[idx++] = wolves.get(i);
-		}
-		drawables[idx] = sheep;
-		return drawables;
-	}
-
 }
@@ -0,0 +1,39 @@
+package com.saygindogu.sheepgame.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The contact phase of a tick: the sheep against wolves, rest spots and resources, then
+ * wolves against followers.
+ */
+@Name("com.saygindogu.sheepgame.Collision")
+@Label("Collision Check")
+@Category({"Sheep Game", "Simulation"})
+@Description("Contacts found and applied after every mover has moved")
+@Enabled(false)
+@StackTrace(false)
+class CollisionEvent extends Event {
+
+    @Label("Tick")
+    long tick;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Candidates")
+    @Description("Rest spots and resources the grids returned near the sheep")
+    int candidates;
+
+    @Label("Contacts")
+    @Description("Wolves, rest spots and resources the sheep touched")
+    int contacts;
+
+    @Label("Followers Caught")
+    int followersCaught;
+}
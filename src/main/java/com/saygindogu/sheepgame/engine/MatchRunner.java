@@ -0,0 +1,142 @@
+package com.saygindogu.sheepgame.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Runs batches of independent headless matches in parallel. Every match gets its own
+ * {@link SimulationEngine} and its own controller, so matches share no mutable state and
+ * spread across a work-stealing pool sized to the machine by default. Matches are pure
+ * CPU work with no blocking, which is why this uses a {@link ForkJoinPool} rather than
+ * virtual threads.
+ */
+public class MatchRunner {
+
+    /**
+     * Steers the sheep of one match. Called before every tick; a fresh controller is
+     * created per match so implementations may keep per-match state.
+     */
+    public interface SheepController {
+        SheepController IDLE = engine -> { };
+
+        void control(SimulationEngine engine);
+    }
+
+    public record MatchSpec(long seed, int difficultyLevel) { }
+
+    public record MatchResult(long seed, int difficultyLevel, long ticks, boolean sheepSurvived) {
+        public long survivedMillis() {
+            return ticks * SimulationEngine.TICK_MILLIS;
+        }
+    }
+
+    public record Report(List<MatchResult> results, long totalTicks, long elapsedNanos) {
+        public double matchesPerSecond() {
+            return results.size() / (elapsedNanos / 1e9);
+        }
+
+        public double ticksPerSecond() {
+            return totalTicks / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d matches, %d ticks in %.3f s: %.1f matches/s, %.0f ticks/s (%.0fx real time)",
+                    results.size(), totalTicks, elapsedNanos / 1e9, matchesPerSecond(), ticksPerSecond(),
+                    ticksPerSecond() * SimulationEngine.TICK_MILLIS / 1000.0);
+        }
+    }
+
+    private final int parallelism;
+    private final long maxTicks;
+    private final Supplier<SheepController> controllerFactory;
+
+    /**
+     * @param parallelism number of worker threads
+     * @param maxTicks tick limit after which a match counts as survived
+     * @param controllerFactory creates the controller for each match
+     */
+    public MatchRunner(int parallelism, long maxTicks, Supplier<SheepController> controllerFactory) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.maxTicks = maxTicks;
+        this.controllerFactory = controllerFactory;
+    }
+
+    public MatchRunner(long maxTicks, Supplier<SheepController> controllerFactory) {
+        this(Runtime.getRuntime().availableProcessors(), maxTicks, controllerFactory);
+    }
+
+    /**
+     * Builds {@code count} matches at one difficulty with seeds {@code baseSeed},
+     * {@code baseSeed + 1}, ...
+     */
+    public static List<MatchSpec> matches(int count, int difficultyLevel, long baseSeed) {
+        List<MatchSpec> specs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            specs.add(new MatchSpec(baseSeed + i, difficultyLevel));
+        }
+        return specs;
+    }
+
+    /**
+     * Plays every match to completion and blocks until all are done.
+     *
+     * @return per-match results in the order of {@code specs}, with aggregate throughput
+     */
+    public Report run(List<MatchSpec> specs) {
+        MatchResult[] results = new MatchResult[specs.size()];
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(specs.size());
+            for (int i = 0; i < specs.size(); i++) {
+                int index = i;
+                tasks.add(pool.submit(() -> {
+                    results[index] = play(specs.get(index));
+                }));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long totalTicks = 0;
+        for (MatchResult r : results) {
+            totalTicks += r.ticks();
+        }
+        return new Report(List.of(results), totalTicks, elapsed);
+    }
+
+    private MatchResult play(MatchSpec spec) {
+        SimulationEngine engine = new SimulationEngine(spec.difficultyLevel(), spec.seed());
+        SheepController controller = controllerFactory.get();
+        while (!engine.isOver() && engine.getTickCount() < maxTicks) {
+            controller.control(engine);
+            engine.tick();
+        }
+        return new MatchResult(spec.seed(), engine.getDifficultyLevel(), engine.getTickCount(), !engine.isOver());
+    }
+
+    /**
+     * Balance-run entry point: {@code MatchRunner [matches] [difficulty] [threads] [maxTicks]}.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int difficulty = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long maxTicks = args.length > 3 ? Long.parseLong(args[3]) : 60L * 60 * 1000 / SimulationEngine.TICK_MILLIS;
+
+        MatchRunner runner = new MatchRunner(threads, maxTicks, () -> SheepController.IDLE);
+        Report report = runner.run(matches(count, difficulty, 0));
+        System.out.println(report);
+    }
+}
@@ -0,0 +1,68 @@
+package com.saygindogu.sheepgame.engine;
+
+/**
+ * Seeded random stream with the same generator and bounded-int algorithm as
+ * {@link java.util.Random}, but with state that can be read and restored, so replay
+ * keyframes and snapshots can capture exactly where each stream is.
+ *
+ * The engine keeps one stream per subsystem, each derived from the match seed with
+ * {@link #derive(long, long)}, so a change to how many numbers one subsystem draws
+ * does not reshuffle the others.
+ */
+public final class RandomStream {
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    /**
+     * Starts a stream that yields the same numbers as {@code new Random(seed)}.
+     */
+    public RandomStream(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /**
+     * @return a well-mixed seed for subsystem {@code salt} of the match seeded with {@code seed}
+     */
+    public static long derive(long seed, long salt) {
+        // SplitMix64 finaliser, so neighbouring seeds and salts give unrelated streams
+        long z = seed + salt * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+
+    private int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive: " + bound);
+        }
+        int r = next(31);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return (int) ((bound * (long) r) >> 31);
+        }
+        for (int u = r; u - (r = u % bound) + m < 0; u = next(31)) {
+        }
+        return r;
+    }
+
+    public long nextLong() {
+        return ((long) next(32) << 32) + next(32);
+    }
+}
@@ -0,0 +1,214 @@
+package com.saygindogu.sheepgame.engine;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A recorded match, read through a memory-mapped file. {@link #seek(long)} restores the
+ * nearest keyframe at or before the requested tick and replays the recorded sheep input
+ * from there, so any tick of a long match is reached after at most one keyframe
+ * interval of simulation.
+ *
+ * File layout, big-endian, as written by {@link ReplayRecorder}:
+ * <pre>
+ * header   magic, version, seed, difficulty, tick millis, keyframe interval, collision mode,
+ *          world width, world height, wolf coast ticks
+ * records  INPUT    varint ticks since the previous record, input mask byte
+ *          KEYFRAME varint tick, int length, {@link SimulationEngine#writeState engine state}
+ *          END
+ * index    int count, then (long tick, long offset) for every keyframe
+ * footer   long last tick, long index offset, magic
+ * </pre>
+ * An input record is only written when the sheep's held directions change, so a match
+ * costs a couple of bytes per key press plus its keyframes.
+ */
+public final class Replay {
+
+    static final int MAGIC = 0x53485250; // "SHRP"
+    static final int VERSION = 6;
+    static final byte INPUT = 1;
+    static final byte KEYFRAME = 2;
+    static final byte END = 3;
+    static final int HEADER_BYTES = 44;
+    static final int FOOTER_BYTES = 20;
+
+    private final MappedByteBuffer data;
+    @Getter
+    private final long seed;
+    @Getter
+    private final int difficultyLevel;
+    @Getter
+    private final int tickMillis;
+    @Getter
+    private final int keyframeInterval;
+    @Getter
+    private final SimulationEngine.CollisionMode collisionMode;
+    @Getter
+    private final int worldWidth;
+    @Getter
+    private final int worldHeight;
+    @Getter
+    private final int wolfCoastTicks;
+    /** Tick the recording ended on. */
+    @Getter
+    private final long lastTick;
+    private final long[] keyframeTicks;
+    private final int[] keyframeOffsets;
+
+    private Replay(MappedByteBuffer data) throws IOException {
+        this.data = data;
+        int size = data.capacity();
+        if (size < HEADER_BYTES + FOOTER_BYTES || data.getInt(0) != MAGIC || data.getInt(size - 4) != MAGIC) {
+            throw new IOException("Not a finished replay file");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported replay version " + data.getInt(4));
+        }
+        seed = data.getLong(8);
+        difficultyLevel = data.getInt(16);
+        tickMillis = data.getInt(20);
+        keyframeInterval = data.getInt(24);
+        collisionMode = SimulationEngine.CollisionMode.values()[data.getInt(28)];
+        worldWidth = data.getInt(32);
+        worldHeight = data.getInt(36);
+        wolfCoastTicks = data.getInt(40);
+
+        lastTick = data.getLong(size - FOOTER_BYTES);
+        int index = (int) data.getLong(size - FOOTER_BYTES + 8);
+        int count = data.getInt(index);
+        keyframeTicks = new long[count];
+        keyframeOffsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            keyframeTicks[i] = data.getLong(index + 4 + i * 16);
+            keyframeOffsets[i] = (int) data.getLong(index + 12 + i * 16);
+        }
+    }
+
+    /**
+     * Maps a replay file. Files up to 2 GB are supported, far more than an hour-long match
+     * needs.
+     */
+    public static Replay open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Replay(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the earliest tick that can be sought to
+     */
+    public long getFirstTick() {
+        return keyframeTicks[0];
+    }
+
+    /**
+     * @return a cursor whose engine is at {@code tick}
+     */
+    public Cursor seek(long tick) {
+        if (tick < getFirstTick() || tick > lastTick) {
+            throw new IllegalArgumentException("Tick " + tick + " is outside " + getFirstTick() + ".." + lastTick);
+        }
+        int k = Arrays.binarySearch(keyframeTicks, tick);
+        if (k < 0) {
+            k = -k - 2;
+        }
+        Cursor cursor = new Cursor(keyframeOffsets[k]);
+        cursor.advanceTo(tick);
+        return cursor;
+    }
+
+    /**
+     * Plays a replay forward from a keyframe. Each cursor owns its engine.
+     */
+    public final class Cursor {
+
+        private final ByteBuffer in = data.duplicate();
+        private final SimulationEngine engine;
+        // Tick of the last record read; input deltas count from here
+        private long recordTick;
+
+        private Cursor(int keyframeOffset) {
+            in.position(keyframeOffset + 1);
+            recordTick = getVarLong(in);
+            int length = in.getInt();
+            // Left empty; the keyframe below replaces the whole field anyway
+            engine = new SimulationEngine(difficultyLevel, seed, tickMillis, worldWidth, worldHeight, false);
+            engine.setCollisionMode(collisionMode);
+            engine.setWolfCoastTicks(wolfCoastTicks);
+            engine.readState(in.slice(in.position(), length));
+            in.position(in.position() + length);
+        }
+
+        public SimulationEngine getEngine() {
+            return engine;
+        }
+
+        public long getTick() {
+            return engine.getTickCount();
+        }
+
+        /**
+         * Applies the input recorded for the next tick and runs it.
+         *
+         * @return false if the recording has already ended
+         */
+        public boolean advance() {
+            long next = engine.getTickCount() + 1;
+            if (next > lastTick) {
+                return false;
+            }
+            while (true) {
+                int start = in.position();
+                byte tag = in.get();
+                if (tag == INPUT) {
+                    long tick = recordTick + getVarLong(in);
+                    if (tick > next) {
+                        in.position(start);
+                        break;
+                    }
+                    recordTick = tick;
+                    engine.getSheep().setInputMask(in.get());
+                } else if (tag == KEYFRAME) {
+                    recordTick = getVarLong(in);
+                    in.position(in.position() + 4 + in.getInt(in.position()));
+                } else {
+                    in.position(start);
+                    break;
+                }
+            }
+            engine.tick();
+            return true;
+        }
+
+        public void advanceTo(long tick) {
+            while (engine.getTickCount() < tick && advance()) {
+            }
+        }
+    }
+
+    static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
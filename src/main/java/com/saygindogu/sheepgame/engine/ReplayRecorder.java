@@ -0,0 +1,185 @@
+package com.saygindogu.sheepgame.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes a match to a {@link Replay} file as it is played. Attach it with
+ * {@link SimulationEngine#setRecorder(ReplayRecorder)}; from then on it is driven by the
+ * thread that ticks the engine. The file is finished when the sheep dies, or by
+ * {@link #close()} once that thread has stopped ticking; a {@link SimulationThread}
+ * does that itself when its loop ends.
+ */
+public class ReplayRecorder implements Closeable {
+
+    /** About ten seconds of play at the default tick length. */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 600;
+
+    private final FileChannel channel;
+    private final int keyframeInterval;
+    private final ByteBuffer out = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer state = ByteBuffer.allocate(1 << 14);
+    private long flushedBytes;
+    private long[] keyframeTicks = new long[64];
+    private long[] keyframeOffsets = new long[64];
+    private int keyframeCount;
+    private long recordTick;
+    private long lastTick;
+    private int lastMask;
+    private boolean started;
+    private boolean closed;
+
+    public ReplayRecorder(Path path) throws IOException {
+        this(path, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * @param keyframeInterval ticks between keyframes; a seek replays at most this many
+     */
+    public ReplayRecorder(Path path, int keyframeInterval) throws IOException {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("keyframeInterval must be positive: " + keyframeInterval);
+        }
+        this.keyframeInterval = keyframeInterval;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    void started(SimulationEngine engine) {
+        if (started) {
+            throw new IllegalStateException("A recorder can only record one match");
+        }
+        started = true;
+        try {
+            out.putInt(Replay.MAGIC);
+            out.putInt(Replay.VERSION);
+            out.putLong(engine.getSeed());
+            out.putInt(engine.getDifficultyLevel());
+            out.putInt(engine.getTickMillis());
+            out.putInt(keyframeInterval);
+            out.putInt(engine.getCollisionMode().ordinal());
+            out.putInt(engine.getWorldWidth());
+            out.putInt(engine.getWorldHeight());
+            out.putInt(engine.getWolfCoastTicks());
+            lastMask = engine.getSheep().getInputMask();
+            writeKeyframe(engine);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void tickCompleted(SimulationEngine engine) {
+        if (closed) {
+            return;
+        }
+        try {
+            long tick = engine.getTickCount();
+            lastTick = tick;
+            // The held directions cannot change during a tick, so this is what the tick ran with
+            int mask = engine.getSheep().getInputMask();
+            if (mask != lastMask) {
+                ensure(11);
+                out.put(Replay.INPUT);
+                Replay.putVarLong(out, tick - recordTick);
+                out.put((byte) mask);
+                recordTick = tick;
+                lastMask = mask;
+            }
+            if (engine.isOver()) {
+                close();
+            } else if (tick % keyframeInterval == 0) {
+                writeKeyframe(engine);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ends the recording at the last tick written and adds the keyframe index.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (channel) {
+            if (!started) {
+                return;
+            }
+            ensure(1);
+            out.put(Replay.END);
+            long indexOffset = flushedBytes + out.position();
+            ensure(4);
+            out.putInt(keyframeCount);
+            for (int i = 0; i < keyframeCount; i++) {
+                ensure(16);
+                out.putLong(keyframeTicks[i]);
+                out.putLong(keyframeOffsets[i]);
+            }
+            ensure(Replay.FOOTER_BYTES);
+            out.putLong(lastTick);
+            out.putLong(indexOffset);
+            out.putInt(Replay.MAGIC);
+            flush();
+        }
+    }
+
+    private void writeKeyframe(SimulationEngine engine) throws IOException {
+        while (true) {
+            try {
+                state.clear();
+                engine.writeState(state);
+                break;
+            } catch (BufferOverflowException e) {
+                state = ByteBuffer.allocate(state.capacity() * 2);
+            }
+        }
+        state.flip();
+
+        long tick = engine.getTickCount();
+        if (keyframeCount == keyframeTicks.length) {
+            keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+        }
+        ensure(15);
+        keyframeTicks[keyframeCount] = tick;
+        keyframeOffsets[keyframeCount] = flushedBytes + out.position();
+        keyframeCount++;
+        out.put(Replay.KEYFRAME);
+        Replay.putVarLong(out, tick);
+        out.putInt(state.remaining());
+        if (state.remaining() > out.remaining()) {
+            flush();
+            while (state.hasRemaining()) {
+                flushedBytes += channel.write(state);
+            }
+        } else {
+            out.put(state);
+        }
+        recordTick = tick;
+        lastTick = tick;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (out.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            flushedBytes += channel.write(out);
+        }
+        out.clear();
+    }
+}
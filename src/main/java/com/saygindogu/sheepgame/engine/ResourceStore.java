@@ -0,0 +1,236 @@
+package com.saygindogu.sheepgame.engine;
+
+import com.saygindogu.sheepgame.model.LocatableShape;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The resources on the field, packed densely in flat arrays. Removing one moves the last
+ * resource into its place, so removal is constant time; iteration order only changes by
+ * that one move and is the same on every run of a match. Resources never overlap, so the
+ * order has no effect on how the field is drawn.
+ *
+ * Each resource is also given a slot whose handle, {@code generation << 32 | slot}, stays
+ * valid until the resource is removed, however the dense order shifts meanwhile. Freed
+ * slots are recycled for later resources with their generation bumped, so a stale handle
+ * resolves to null rather than to whatever took its slot. Resources themselves are never
+ * changed or reused while anything may still refer to them: snapshots, forks and published
+ * frames share them by reference.
+ *
+ * Looking up a resource's slot goes through an open-addressing identity table, so the
+ * store allocates nothing once its arrays have grown to the largest field seen. Read
+ * access is through the {@link java.util.List} interface; only the engine changes it.
+ */
+public final class ResourceStore extends AbstractList<LocatableShape> implements RandomAccess {
+
+    /** Returned by {@link #handleOf} for resources not in the store. */
+    public static final long NO_HANDLE = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Dense order, and the slot each dense entry owns
+    private LocatableShape[] items = new LocatableShape[INITIAL_CAPACITY];
+    private int[] itemSlot = new int[INITIAL_CAPACITY];
+    private int size;
+
+    // Per slot: its dense index, or -1 when free, and how often it has been freed
+    private int[] slotIndex = new int[INITIAL_CAPACITY];
+    private int[] slotGeneration = new int[INITIAL_CAPACITY];
+    private int slotCount;
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+
+    // Identity table from resource to slot, linear probing, at most half full
+    private LocatableShape[] keys = new LocatableShape[INITIAL_CAPACITY * 2];
+    private int[] keySlot = new int[INITIAL_CAPACITY * 2];
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public LocatableShape get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return items[index];
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof LocatableShape && find((LocatableShape) o) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E> E[] toArray(E[] a) {
+        if (a.length < size) {
+            return (E[]) Arrays.copyOf(items, size, a.getClass());
+        }
+        System.arraycopy(items, 0, a, 0, size);
+        if (a.length > size) {
+            a[size] = null;
+        }
+        return a;
+    }
+
+    /**
+     * @return the resource's handle, or {@link #NO_HANDLE} if it is not in the store
+     */
+    public long handleOf(LocatableShape resource) {
+        int k = find(resource);
+        if (k < 0) {
+            return NO_HANDLE;
+        }
+        int slot = keySlot[k];
+        return ((long) slotGeneration[slot] << 32) | slot;
+    }
+
+    /**
+     * @return the resource the handle was given for, or null if it has been removed since
+     */
+    public LocatableShape resolve(long handle) {
+        int slot = (int) handle;
+        if (handle < 0 || slot >= slotCount || slotGeneration[slot] != (int) (handle >>> 32)) {
+            return null;
+        }
+        int index = slotIndex[slot];
+        return index < 0 ? null : items[index];
+    }
+
+    /**
+     * Adds a resource at the end of the dense order.
+     *
+     * @return its handle
+     */
+    long insert(LocatableShape resource) {
+        if (find(resource) >= 0) {
+            throw new IllegalArgumentException("Resource is already in the store");
+        }
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == slotIndex.length) {
+                slotIndex = Arrays.copyOf(slotIndex, slotCount * 2);
+                slotGeneration = Arrays.copyOf(slotGeneration, slotCount * 2);
+                freeSlots = Arrays.copyOf(freeSlots, slotCount * 2);
+            }
+            slot = slotCount++;
+        }
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            itemSlot = Arrays.copyOf(itemSlot, size * 2);
+        }
+        items[size] = resource;
+        itemSlot[size] = slot;
+        slotIndex[slot] = size;
+        size++;
+        modCount++;
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        put(resource, slot);
+        return ((long) slotGeneration[slot] << 32) | slot;
+    }
+
+    /**
+     * Removes a resource, moving the last one into its place.
+     *
+     * @return false if it was not in the store
+     */
+    boolean delete(LocatableShape resource) {
+        int k = find(resource);
+        if (k < 0) {
+            return false;
+        }
+        int slot = keySlot[k];
+        deleteKey(k);
+        int index = slotIndex[slot];
+        int last = --size;
+        if (index != last) {
+            items[index] = items[last];
+            itemSlot[index] = itemSlot[last];
+            slotIndex[itemSlot[index]] = index;
+        }
+        items[last] = null;
+        freeSlot(slot);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes every resource. Outstanding handles all go stale.
+     */
+    void reset() {
+        for (int i = 0; i < size; i++) {
+            freeSlot(itemSlot[i]);
+        }
+        Arrays.fill(items, 0, size, null);
+        Arrays.fill(keys, null);
+        size = 0;
+        modCount++;
+    }
+
+    private void freeSlot(int slot) {
+        slotIndex[slot] = -1;
+        slotGeneration[slot] = (slotGeneration[slot] + 1) & Integer.MAX_VALUE;
+        freeSlots[freeCount++] = slot;
+    }
+
+    private int home(LocatableShape resource) {
+        int h = System.identityHashCode(resource);
+        return (h ^ (h >>> 16)) & (keys.length - 1);
+    }
+
+    private int find(LocatableShape resource) {
+        int mask = keys.length - 1;
+        for (int k = home(resource); keys[k] != null; k = (k + 1) & mask) {
+            if (keys[k] == resource) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private void put(LocatableShape resource, int slot) {
+        int mask = keys.length - 1;
+        int k = home(resource);
+        while (keys[k] != null) {
+            k = (k + 1) & mask;
+        }
+        keys[k] = resource;
+        keySlot[k] = slot;
+    }
+
+    // Backward-shift deletion, so no tombstones build up
+    private void deleteKey(int k) {
+        int mask = keys.length - 1;
+        int hole = k;
+        for (int next = (hole + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int h = home(keys[next]);
+            // Move the entry back if its home does not lie cyclically in (hole, next]
+            if (((next - h) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                keySlot[hole] = keySlot[next];
+                hole = next;
+            }
+        }
+        keys[hole] = null;
+    }
+
+    private void rehash(int newLength) {
+        LocatableShape[] oldKeys = keys;
+        int[] oldSlots = keySlot;
+        keys = new LocatableShape[newLength];
+        keySlot = new int[newLength];
+        for (int k = 0; k < oldKeys.length; k++) {
+            if (oldKeys[k] != null) {
+                put(oldKeys[k], oldSlots[k]);
+            }
+        }
+    }
+}
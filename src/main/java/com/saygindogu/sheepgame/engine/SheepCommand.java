@@ -0,0 +1,25 @@
+package com.saygindogu.sheepgame.engine;
+
+import com.saygindogu.sheepgame.model.Sheep;
+
+/**
+ * A steering input for the sheep, queued by the UI and applied on the simulation thread
+ * before the next tick.
+ */
+public enum SheepCommand {
+    GO_UP, GO_DOWN, GO_LEFT, GO_RIGHT,
+    STOP_UP, STOP_DOWN, STOP_LEFT, STOP_RIGHT;
+
+    void apply(Sheep sheep) {
+        switch (this) {
+            case GO_UP -> sheep.goUp();
+            case GO_DOWN -> sheep.goDown();
+            case GO_LEFT -> sheep.goLeft();
+            case GO_RIGHT -> sheep.goRight();
+            case STOP_UP -> sheep.stopUp();
+            case STOP_DOWN -> sheep.stopDown();
+            case STOP_LEFT -> sheep.stopLeft();
+            case STOP_RIGHT -> sheep.stopRight();
+        }
+    }
+}
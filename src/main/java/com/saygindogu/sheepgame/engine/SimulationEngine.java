@@ -0,0 +1,998 @@
+package com.saygindogu.sheepgame.engine;
+
+import com.saygindogu.sheepgame.model.*;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_X;
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_Y;
+import static com.saygindogu.sheepgame.SheepGame.TIMER_CONSTANT;
+
+/**
+ * Headless simulation of one match. The world only moves when {@link #step(long)} or
+ * {@link #tick()} is called, in fixed steps of simulated time ({@link #TICK_MILLIS} unless
+ * another tick length is given), so a driver decides how fast a match runs: the Swing UI
+ * feeds it wall-clock time, a bot or balance run can call it in a tight loop.
+ *
+ * Movers keep their position from before the last tick, and {@link #getInterpolationAlpha()}
+ * says how far the leftover time is into the next tick, so a renderer can draw between the
+ * two states at any frame rate. With ticks longer than the default, a fast sheep or wolf
+ * could jump clean past a small resource or past each other between two samples, so
+ * collisions are then tested along each mover's whole path instead; see
+ * {@link CollisionMode}.
+ *
+ * Roaming wolves far from the sheep coast between full ticks, see {@link WolfPack}, so a
+ * large pack costs little more than the wolves near the sheep; set the longest coast with
+ * {@link #setWolfCoastTicks(int)}.
+ *
+ * Timed events such as vitals and resource spawns run on the engine's {@link TimingWheel},
+ * which counts ticks rather than wall-clock time and so keeps pace in fast-forward and
+ * headless runs. Anything else that should happen later in a match belongs there too.
+ *
+ * The world is the screen-sized field unless a larger size is given; a larger world is
+ * streamed around the sheep in chunks, see {@link WorldChunks}, and wolves roam the part
+ * of it that is live.
+ *
+ * The sheep can lead a {@link Flock} of followers, added with {@link #spawnFlock(int)}.
+ * Wolves then go for whichever sheep is nearest and catch followers they touch; the match
+ * still ends only when the leader is caught.
+ *
+ * A tick moves everything first and then resolves contacts. Large flocks and packs move
+ * across the fork/join pool, each mover writing only its own state; contacts are then
+ * found and applied on the ticking thread in a fixed order, so which resource is eaten
+ * or which follower is caught never depends on the number of threads.
+ *
+ * Nothing here touches Swing or AWT; two engines built with the same difficulty and
+ * seed, and given the same inputs, play out identically. Each subsystem draws from its
+ * own {@link RandomStream} derived from the seed, and {@link #writeState(ByteBuffer)}
+ * captures the whole world, streams included, for replay keyframes. For planners,
+ * {@link #snapshot()}, {@link #restore(Snapshot)} and {@link #fork()} copy the same state
+ * in memory without serialising it.
+ */
+public class SimulationEngine {
+
+    /** Tick length the movement constants were tuned for. */
+    public static final int TICK_MILLIS = 16;
+    public static final int VITALS_INTERVAL_MILLIS = 1000;
+    /** About a second at the default tick length. */
+    public static final int DEFAULT_WOLF_COAST_TICKS = 60;
+    // Followers start this far apart, a little closer than they keep to each other
+    private static final double FLOCK_SPACING = 40;
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    // Comfortably larger than any resource, rest spot or mover, so most shapes span few cells
+    static final int GRID_CELL_SIZE = 64;
+    // Close to a wolf's size, so a gap one cell wide is one a wolf could pass
+    private static final int FLOW_CELL_SIZE = 32;
+
+    // Subsystem salts for RandomStream.derive; changing one changes every recorded match
+    private static final long LAYOUT_STREAM = 1;
+    private static final long SPAWN_STREAM = 2;
+    private static final long WOLF_STREAM = 3;
+    static final long CHUNK_STREAM = 4;
+
+    private static final byte GRASS = 0;
+    private static final byte WATER = 1;
+    /** Most bytes {@link #writeResource} writes for one resource. */
+    static final int MAX_RESOURCE_BYTES = 1 + 6 * Integer.BYTES;
+
+    /**
+     * How contacts between the sheep and everything else are found each tick.
+     */
+    public enum CollisionMode {
+        /** Overlap of the positions at the end of the tick only. */
+        DISCRETE,
+        /**
+         * Contact at any point while moving from the previous to the current position,
+         * with the sheep and wolves moving in straight lines. As with the discrete test, a
+         * wolf met anywhere on the path ends the match before anything is eaten. Rest spots
+         * are still only tested where the sheep ends up.
+         */
+        SWEPT
+    }
+
+    // Rest spot placement, resource spawns and wolf seeds
+    private final RandomStream layoutRandom;
+    private final RandomStream spawnRandom;
+    private final RandomStream wolfRandom;
+    @Getter
+    private final long seed;
+    @Getter
+    private final int difficultyLevel;
+    @Getter
+    private final int worldWidth;
+    @Getter
+    private final int worldHeight;
+    @Getter
+    private final Sheep sheep;
+    @Getter
+    private final WolfPack wolfPack = new WolfPack();
+    @Getter
+    private final List<Wolf> wolves = new ArrayList<>();
+    /** Followers of the sheep; empty unless {@link #spawnFlock(int)} added some. */
+    @Getter
+    private final Flock flock = new Flock();
+    /** Steers chasing wolves around blocked cells; empty, and so inert, unless cells are blocked. */
+    @Getter
+    private final FlowField flowField;
+    @Getter
+    private final List<RestingSpot> restingSpots = new ArrayList<>();
+    /** Resources on the field; read-only outside the engine. */
+    @Getter
+    private final ResourceStore otherObjects = new ResourceStore();
+    private final SpatialGrid<Wolf> wolfGrid = new SpatialGrid<>(GRID_CELL_SIZE);
+    private final SpatialGrid<RestingSpot> restingSpotGrid = new SpatialGrid<>(GRID_CELL_SIZE);
+    private final SpatialGrid<LocatableShape> objectGrid = new SpatialGrid<>(GRID_CELL_SIZE);
+    private final List<RestingSpot> restingSpotHits = new ArrayList<>();
+    private final List<LocatableShape> objectHits = new ArrayList<>();
+    // Reused every tick, so a tick allocates nothing whether or not a recording wants them
+    private final TickEvent tickEvent = new TickEvent();
+    private final CollisionEvent collisionEvent = new CollisionEvent();
+    private final SpawnEvent spawnEvent = new SpawnEvent();
+    private final List<Wolf> wolfHits = new ArrayList<>();
+    private final SpawnPlacer spawnPlacer;
+    // Null on the screen-sized field
+    private final WorldChunks chunks;
+    private final int spawnsPerInterval;
+    private final Wolf[] nearestWolf = new Wolf[1];
+    private final double[] nearestDistance = new double[1];
+    /** Defaults to swept for ticks longer than {@link #TICK_MILLIS}, discrete otherwise. */
+    @Getter
+    private CollisionMode collisionMode;
+    @Getter
+    private int wolfCoastTicks;
+    // Furthest a wolf's rounded location can move in one tick
+    private final int wolfReach;
+    /** Runs delayed and periodic game events, one wheel tick per engine tick. */
+    @Getter
+    private final TimingWheel scheduler = new TimingWheel();
+    private final Runnable spawnTask = this::spawnDue;
+    private final Runnable vitalsTask = this::vitalsDue;
+    private TimingWheel.Timeout spawnTimeout;
+    private TimingWheel.Timeout vitalsTimeout;
+    private ReplayRecorder recorder;
+    @Getter
+    private final int tickMillis;
+    @Getter
+    private final int spawnIntervalMillis;
+    @Getter
+    private long tickCount;
+    /** Bumped whenever a resource or rest spot is added or removed. */
+    @Getter
+    private long staticLayerVersion;
+    @Getter
+    private long accumulatorNanos;
+    private long nextVitalsMillis;
+    private long nextSpawnMillis;
+    // Resources and rest spots as last handed to or taken from a snapshot, and the static
+    // layer version they match; lets snapshots share them while the field is unchanged
+    private LocatableShape[] sharedObjects;
+    private RestingSpot[] sharedRestingSpots;
+    private long sharedVersion;
+
+    public SimulationEngine(int difficultyLevel, long seed) {
+        this(difficultyLevel, seed, TICK_MILLIS);
+    }
+
+    /**
+     * @param tickMillis simulated time per tick; movement is scaled so a mover covers the
+     *                   same distance per second at any tick length
+     */
+    public SimulationEngine(int difficultyLevel, long seed, int tickMillis) {
+        this(difficultyLevel, seed, tickMillis, GAME_SIZE_X, GAME_SIZE_Y);
+    }
+
+    /**
+     * @param worldWidth  at least the screen-sized field's width; a world wider or taller
+     *                    than that field is streamed in chunks, and its size rounded up
+     *                    to whole chunks
+     * @param worldHeight at least the screen-sized field's height
+     */
+    public SimulationEngine(int difficultyLevel, long seed, int tickMillis, int worldWidth, int worldHeight) {
+        this(difficultyLevel, seed, tickMillis, worldWidth, worldHeight, true);
+    }
+
+    /**
+     * @param populate false for an empty field, to be overwritten by a restore or
+     *                 {@link #readState} right away
+     */
+    SimulationEngine(int difficultyLevel, long seed, int tickMillis, int worldWidth, int worldHeight,
+                     boolean populate) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        if (worldWidth < GAME_SIZE_X || worldHeight < GAME_SIZE_Y) {
+            throw new IllegalArgumentException("World of " + worldWidth + "x" + worldHeight
+                    + " is smaller than the " + GAME_SIZE_X + "x" + GAME_SIZE_Y + " field");
+        }
+        if (difficultyLevel > 10) {
+            this.difficultyLevel = 10;
+        } else if (difficultyLevel <= 0) {
+            this.difficultyLevel = 1;
+        } else {
+            this.difficultyLevel = difficultyLevel;
+        }
+
+        this.tickMillis = tickMillis;
+        this.seed = seed;
+        if (worldWidth == GAME_SIZE_X && worldHeight == GAME_SIZE_Y) {
+            this.worldWidth = worldWidth;
+            this.worldHeight = worldHeight;
+            spawnPlacer = new SpawnPlacer(worldWidth, worldHeight, otherObjects, objectGrid, restingSpots, restingSpotGrid);
+            chunks = null;
+            spawnsPerInterval = 1;
+        } else {
+            this.worldWidth = WorldChunks.roundUp(worldWidth);
+            this.worldHeight = WorldChunks.roundUp(worldHeight);
+            // Resources spawn one chunk at a time, so the placer only needs to cover one
+            spawnPlacer = new SpawnPlacer(WorldChunks.CHUNK_SIZE, WorldChunks.CHUNK_SIZE,
+                    otherObjects, objectGrid, restingSpots, restingSpotGrid);
+            chunks = new WorldChunks(this.difficultyLevel, seed, this.worldWidth, this.worldHeight,
+                    otherObjects, objectGrid, restingSpots, restingSpotGrid);
+            spawnsPerInterval = WorldChunks.spawnsPerInterval();
+        }
+        flowField = new FlowField(this.worldWidth, this.worldHeight, FLOW_CELL_SIZE);
+        layoutRandom = new RandomStream(RandomStream.derive(seed, LAYOUT_STREAM));
+        spawnRandom = new RandomStream(RandomStream.derive(seed, SPAWN_STREAM));
+        wolfRandom = new RandomStream(RandomStream.derive(seed, WOLF_STREAM));
+        sheep = new Sheep(this.difficultyLevel);
+        sheep.setWorldSize(this.worldWidth, this.worldHeight);
+        wolfPack.setWorldSize(this.worldWidth, this.worldHeight);
+        double tickScale = tickMillis / (double) TICK_MILLIS;
+        sheep.setTickScale(tickScale);
+        wolfPack.setTickScale(tickScale);
+        wolfPack.setFlowField(flowField);
+        flock.setWorldSize(this.worldWidth, this.worldHeight);
+        flock.setTickScale(tickScale);
+        flock.setMaxSpeed(sheep.getMaxSpeed());
+        wolfReach = (int) Math.ceil(wolfChaseSpeed(this.difficultyLevel) * tickScale) + 1;
+        collisionMode = tickMillis > TICK_MILLIS ? CollisionMode.SWEPT : CollisionMode.DISCRETE;
+        setWolfCoastTicks(DEFAULT_WOLF_COAST_TICKS);
+        spawnIntervalMillis = TIMER_CONSTANT / 10 * (this.difficultyLevel / 2 + 1);
+        nextVitalsMillis = VITALS_INTERVAL_MILLIS;
+        nextSpawnMillis = spawnIntervalMillis;
+        rescheduleTimedEvents();
+
+        if (populate) {
+            initialize();
+        }
+    }
+
+    /**
+     * Advances the simulation by {@code dtMillis} of simulated time. Whole ticks are run
+     * as they become due; the remainder is carried over to the next call.
+     *
+     * @return the number of ticks that were run
+     */
+    public int step(long dtMillis) {
+        return stepNanos(dtMillis * 1_000_000);
+    }
+
+    /**
+     * Same as {@link #step(long)} with nanosecond input, so a wall-clock driver does not
+     * lose sub-millisecond remainders.
+     */
+    public int stepNanos(long dtNanos) {
+        long tickNanos = tickMillis * 1_000_000L;
+        accumulatorNanos += dtNanos;
+        int ticks = 0;
+        while (accumulatorNanos >= tickNanos && !isOver()) {
+            accumulatorNanos -= tickNanos;
+            tick();
+            ticks++;
+        }
+        if (isOver()) {
+            accumulatorNanos = 0;
+        }
+        return ticks;
+    }
+
+    /**
+     * @return how far the carried-over time is into the next tick, from 0 (draw the
+     *         current state) to just under 1
+     */
+    public double getInterpolationAlpha() {
+        return accumulatorNanos / (tickMillis * 1_000_000.0);
+    }
+
+    /**
+     * Runs exactly one fixed tick: timed events that fell due, then movement, then collisions.
+     */
+    public void tick() {
+        if (isOver()) {
+            return;
+        }
+        TickEvent event = tickEvent;
+        event.begin();
+        tickCount++;
+        scheduler.advance();
+
+        sheep.tick();
+        if (chunks != null) {
+            updateChunks();
+        }
+        flock.tick(sheep);
+        flowField.update(sheep.getLocationX() + sheep.getWidth() / 2.0, sheep.getLocationY() + sheep.getHeight() / 2.0);
+        wolfPack.tick(sheep.getLocationX(), sheep.getLocationY(), flock);
+
+        // Contacts, on this thread in wolf and grid order whatever ran the moves above.
+        // Indexed loops here and in checkCollisions, so a tick allocates no iterators
+        collisionEvent.begin();
+        for (int i = 0; i < wolves.size(); i++) {
+            wolfGrid.update(wolves.get(i));
+        }
+        int contacts = checkCollisions();
+        int caught = 0;
+        if (flock.size() > 0 && sheep.isAlive()) {
+            caught = catchFollowers();
+        }
+        collisionEvent.end();
+        if (collisionEvent.shouldCommit()) {
+            collisionEvent.tick = tickCount;
+            collisionEvent.mode = collisionMode.name();
+            collisionEvent.candidates = restingSpotHits.size() + objectHits.size();
+            collisionEvent.contacts = contacts;
+            collisionEvent.followersCaught = caught;
+            collisionEvent.commit();
+        }
+
+        if (recorder != null) {
+            recorder.tickCompleted(this);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.tick = tickCount;
+            event.wolves = wolves.size();
+            event.followers = flock.size();
+            event.resources = otherObjects.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Chooses how contacts are found from the next tick on. Replays record the mode, so
+     * set it before attaching a recorder.
+     */
+    public void setCollisionMode(CollisionMode collisionMode) {
+        this.collisionMode = collisionMode;
+    }
+
+    /**
+     * Adds {@code count} followers in a spiral out from the sheep.
+     *
+     * @throws IllegalStateException while a replay is being recorded, since the recording
+     *                               would no longer match the match
+     */
+    public void spawnFlock(int count) {
+        if (recorder != null) {
+            throw new IllegalStateException("Cannot add to the flock while recording a replay");
+        }
+        // Golden-angle spiral: evenly spaced at any count. Points off the field are skipped
+        // until the spiral outgrows the field, so a sheep by a wall gets no pile-up there
+        double maxRadius = Math.hypot(worldWidth, worldHeight);
+        int placed = 0;
+        for (int k = 1; placed < count; k++) {
+            double r = FLOCK_SPACING * Math.sqrt(k);
+            double a = k * GOLDEN_ANGLE;
+            double x = sheep.getXPos() + r * Math.cos(a);
+            double y = sheep.getYPos() + r * Math.sin(a);
+            if (r > maxRadius || (x >= 0 && y >= 0 && x <= worldWidth - Flock.WIDTH && y <= worldHeight - Flock.HEIGHT)) {
+                flock.add(x, y);
+                placed++;
+            }
+        }
+    }
+
+    /**
+     * Sets how many ticks at most a roaming wolf far from the sheep moves in closed form
+     * between full ticks; 0 gives every wolf a full tick every tick. Wolves near the sheep
+     * are unaffected. Replays record the setting, so set it before attaching a recorder.
+     */
+    public void setWolfCoastTicks(int wolfCoastTicks) {
+        if (wolfCoastTicks < 0) {
+            throw new IllegalArgumentException("wolfCoastTicks must not be negative: " + wolfCoastTicks);
+        }
+        this.wolfCoastTicks = wolfCoastTicks;
+        wolfPack.setLevelOfDetail(wolfCoastTicks, sheep.getMaxSpeed() * tickMillis / TICK_MILLIS);
+    }
+
+    public boolean isOver() {
+        return !sheep.isAlive();
+    }
+
+    /**
+     * Finds the {@code k} wolves whose centres are nearest to ({@code x}, {@code y}), closest
+     * first, without scanning the whole pack or allocating.
+     *
+     * @param distances receives each wolf's centre distance
+     * @return the number found
+     */
+    public int nearestWolves(double x, double y, int k, Wolf[] out, double[] distances) {
+        return wolfGrid.nearest(x, y, k, null, out, distances);
+    }
+
+    /**
+     * Like {@link #nearestWolves} for resources, for instance {@code Grass.class} or
+     * {@code Water.class}.
+     *
+     * @param type the kind of resource to look for, or null for any
+     */
+    public int nearestObjects(double x, double y, int k, Class<? extends LocatableShape> type,
+                              LocatableShape[] out, double[] distances) {
+        return objectGrid.nearest(x, y, k, type, out, distances);
+    }
+
+    /**
+     * @return the wolf whose top-left corner is nearest the sheep's, the measure wolves
+     *         use to decide whether to chase, or null if there are none
+     */
+    Wolf nearestWolfToSheep() {
+        // Every wolf has the same size, so offsetting the sheep's corner by half a wolf
+        // ranks wolf centres exactly as their corners
+        int found = nearestWolves(sheep.getLocationX() + WolfPack.WIDTH / 2.0,
+                sheep.getLocationY() + WolfPack.HEIGHT / 2.0, 1, nearestWolf, nearestDistance);
+        return found == 0 ? null : nearestWolf[0];
+    }
+
+    /**
+     * @return simulated time since the start of the match
+     */
+    public long getTimeMillis() {
+        return tickCount * tickMillis;
+    }
+
+    /**
+     * Records every following tick, and a keyframe of the current state, to {@code recorder}.
+     * Pass null to stop recording.
+     */
+    public void setRecorder(ReplayRecorder recorder) {
+        this.recorder = recorder;
+        if (recorder != null) {
+            recorder.started(this);
+        }
+    }
+
+    ReplayRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Writes the full world state: clock, random streams, sheep, flock, wolves, rest
+     * spots, resources and, in a streamed world, the chunks. Difficulty, seed, tick length and
+     * world size are not included; they are fixed for an engine and restored by
+     * constructing one with the same values.
+     */
+    public void writeState(ByteBuffer out) {
+        out.putLong(tickCount);
+        out.putLong(staticLayerVersion);
+        out.putLong(nextSpawnMillis);
+        out.putLong(nextVitalsMillis);
+        out.putLong(layoutRandom.getState());
+        out.putLong(spawnRandom.getState());
+        out.putLong(wolfRandom.getState());
+        sheep.writeState(out);
+        flock.writeState(out);
+        wolfPack.writeState(out);
+        out.putInt(restingSpots.size());
+        for (RestingSpot rs : restingSpots) {
+            rs.writeState(out);
+        }
+        out.putInt(otherObjects.size());
+        for (int i = 0; i < otherObjects.size(); i++) {
+            writeResource(out, otherObjects.get(i));
+        }
+        if (chunks != null) {
+            chunks.writeState(out);
+        }
+    }
+
+    /**
+     * Replaces the world with state written by {@link #writeState(ByteBuffer)} on an engine
+     * of the same difficulty, tick length and world size. Carried-over step time is dropped and the
+     * engine's own timed events are rescheduled from the restored clock; anything else
+     * that was on the {@link #getScheduler() scheduler} is cancelled.
+     */
+    public void readState(ByteBuffer in) {
+        tickCount = in.getLong();
+        staticLayerVersion = in.getLong();
+        spawnPlacer.invalidate();
+        nextSpawnMillis = in.getLong();
+        nextVitalsMillis = in.getLong();
+        layoutRandom.setState(in.getLong());
+        spawnRandom.setState(in.getLong());
+        wolfRandom.setState(in.getLong());
+        sheep.readState(in);
+        flock.readState(in);
+
+        wolfPack.readState(in);
+        wolves.clear();
+        wolfGrid.clear();
+        for (int i = 0; i < wolfPack.size(); i++) {
+            Wolf w = wolfPack.get(i);
+            wolves.add(w);
+            wolfGrid.insert(w);
+        }
+
+        restingSpots.clear();
+        restingSpotGrid.clear();
+        for (int i = in.getInt(); i > 0; i--) {
+            RestingSpot rs = RestingSpot.readState(in, difficultyLevel);
+            restingSpots.add(rs);
+            restingSpotGrid.insert(rs);
+        }
+
+        otherObjects.reset();
+        objectGrid.clear();
+        for (int i = in.getInt(); i > 0; i--) {
+            LocatableShape obj = readResource(in);
+            otherObjects.insert(obj);
+            objectGrid.insert(obj);
+        }
+        if (chunks != null) {
+            chunks.readState(in);
+            updateRoamArea();
+        }
+
+        accumulatorNanos = 0;
+        sharedObjects = null;
+        rescheduleTimedEvents();
+    }
+
+    /**
+     * @return a new snapshot of the current state
+     */
+    public Snapshot snapshot() {
+        return snapshot(new Snapshot(difficultyLevel, tickMillis, worldWidth, worldHeight));
+    }
+
+    /**
+     * Overwrites {@code into} with the current state, so a planner can keep reusing one
+     * snapshot without allocating.
+     *
+     * @return {@code into}
+     */
+    public Snapshot snapshot(Snapshot into) {
+        checkCompatible(into);
+        if (sharedObjects == null || sharedVersion != staticLayerVersion) {
+            sharedObjects = otherObjects.toArray(new LocatableShape[0]);
+            sharedRestingSpots = restingSpots.toArray(new RestingSpot[0]);
+            sharedVersion = staticLayerVersion;
+        }
+        into.tickCount = tickCount;
+        into.staticLayerVersion = staticLayerVersion;
+        into.accumulatorNanos = accumulatorNanos;
+        into.nextSpawnMillis = nextSpawnMillis;
+        into.nextVitalsMillis = nextVitalsMillis;
+        into.layoutRandomState = layoutRandom.getState();
+        into.spawnRandomState = spawnRandom.getState();
+        into.wolfRandomState = wolfRandom.getState();
+        into.sheep.copyFrom(sheep);
+        into.flock.copyFrom(flock);
+        into.wolfPack.copyFrom(wolfPack);
+        into.objects = sharedObjects;
+        into.restingSpots = sharedRestingSpots;
+        into.chunks = chunks == null ? null : chunks.save();
+        return into;
+    }
+
+    /**
+     * Puts the engine back into the state captured by {@code snapshot}. Resources and rest
+     * spots are only re-indexed when the field differs from the snapshot's. As with
+     * {@link #readState(ByteBuffer)}, other tasks on the scheduler are cancelled.
+     *
+     * @throws IllegalStateException while a replay is being recorded, since the recording
+     *                               would no longer match the match
+     */
+    public void restore(Snapshot snapshot) {
+        checkCompatible(snapshot);
+        if (recorder != null) {
+            throw new IllegalStateException("Cannot restore a snapshot while recording a replay");
+        }
+        tickCount = snapshot.tickCount;
+        accumulatorNanos = snapshot.accumulatorNanos;
+        nextSpawnMillis = snapshot.nextSpawnMillis;
+        nextVitalsMillis = snapshot.nextVitalsMillis;
+        layoutRandom.setState(snapshot.layoutRandomState);
+        spawnRandom.setState(snapshot.spawnRandomState);
+        wolfRandom.setState(snapshot.wolfRandomState);
+        sheep.copyFrom(snapshot.sheep);
+        flock.copyFrom(snapshot.flock);
+
+        int wolfCount = wolves.size();
+        wolfPack.copyFrom(snapshot.wolfPack);
+        if (wolfPack.size() == wolfCount) {
+            for (int i = 0; i < wolfCount; i++) {
+                wolfGrid.update(wolves.get(i));
+            }
+        } else {
+            wolves.clear();
+            wolfGrid.clear();
+            for (int i = 0; i < wolfPack.size(); i++) {
+                Wolf w = wolfPack.get(i);
+                wolves.add(w);
+                wolfGrid.insert(w);
+            }
+        }
+
+        // Anything added or removed since the shared arrays were set bumps the version
+        if (snapshot.objects != sharedObjects || staticLayerVersion != sharedVersion) {
+            otherObjects.reset();
+            objectGrid.clear();
+            for (LocatableShape obj : snapshot.objects) {
+                otherObjects.insert(obj);
+                objectGrid.insert(obj);
+            }
+            restingSpots.clear();
+            restingSpotGrid.clear();
+            for (RestingSpot rs : snapshot.restingSpots) {
+                restingSpots.add(rs);
+                restingSpotGrid.insert(rs);
+            }
+            sharedObjects = snapshot.objects;
+            sharedRestingSpots = snapshot.restingSpots;
+        }
+        if (chunks != null) {
+            chunks.restore(snapshot.chunks);
+        }
+        staticLayerVersion = snapshot.staticLayerVersion;
+        spawnPlacer.invalidate();
+        sharedVersion = staticLayerVersion;
+        rescheduleTimedEvents();
+    }
+
+    /**
+     * @return an independent engine in the current state, with the same difficulty, seed,
+     *         tick length, collision mode and wolf coast length but no replay recorder
+     */
+    public SimulationEngine fork() {
+        SimulationEngine copy = new SimulationEngine(difficultyLevel, seed, tickMillis, worldWidth, worldHeight, false);
+        copy.collisionMode = collisionMode;
+        copy.setWolfCoastTicks(wolfCoastTicks);
+        copy.flowField.copyObstaclesFrom(flowField);
+        copy.restore(snapshot());
+        return copy;
+    }
+
+    private void checkCompatible(Snapshot snapshot) {
+        if (snapshot.getDifficultyLevel() != difficultyLevel || snapshot.getTickMillis() != tickMillis
+                || snapshot.getWorldWidth() != worldWidth || snapshot.getWorldHeight() != worldHeight) {
+            throw new IllegalArgumentException("Snapshot is for difficulty " + snapshot.getDifficultyLevel()
+                    + " at " + snapshot.getTickMillis() + " ms ticks in a " + snapshot.getWorldWidth()
+                    + "x" + snapshot.getWorldHeight() + " world");
+        }
+    }
+
+    private void rescheduleTimedEvents() {
+        if (spawnTimeout == null) {
+            spawnTimeout = scheduler.schedule(ticksUntil(nextSpawnMillis), spawnTask);
+            vitalsTimeout = scheduler.schedule(ticksUntil(nextVitalsMillis), vitalsTask);
+            return;
+        }
+        // Cancelled first so that resetting an otherwise empty wheel costs nothing
+        spawnTimeout.cancel();
+        vitalsTimeout.cancel();
+        scheduler.reset(tickCount);
+        scheduler.reschedule(spawnTimeout, ticksUntil(nextSpawnMillis));
+        scheduler.reschedule(vitalsTimeout, ticksUntil(nextVitalsMillis));
+    }
+
+    private void spawnDue() {
+        SpawnEvent event = spawnEvent;
+        event.begin();
+        long attempts = spawnPlacer.attempts;
+        long tableFallbacks = spawnPlacer.tableFallbacks;
+        int spawned = 0;
+        int rejected = 0;
+        long now = getTimeMillis();
+        while (now >= nextSpawnMillis) {
+            nextSpawnMillis += spawnIntervalMillis;
+            for (int i = 0; i < spawnsPerInterval; i++) {
+                if (createNewObject()) {
+                    spawned++;
+                } else {
+                    rejected++;
+                }
+            }
+        }
+        scheduler.reschedule(spawnTimeout, ticksUntil(nextSpawnMillis));
+        event.end();
+        if (event.shouldCommit()) {
+            event.tick = tickCount;
+            event.spawned = spawned;
+            event.rejected = rejected;
+            event.attempts = (int) (spawnPlacer.attempts - attempts);
+            event.tableFallbacks = (int) (spawnPlacer.tableFallbacks - tableFallbacks);
+            event.commit();
+        }
+    }
+
+    private void vitalsDue() {
+        long now = getTimeMillis();
+        while (now >= nextVitalsMillis && sheep.isAlive()) {
+            nextVitalsMillis += VITALS_INTERVAL_MILLIS;
+            sheep.tickVitals();
+        }
+        scheduler.reschedule(vitalsTimeout, ticksUntil(nextVitalsMillis));
+    }
+
+    /**
+     * @return the number of ticks from now until the first tick at or after {@code dueMillis};
+     *         intervals are kept in milliseconds so they do not drift when they are not a
+     *         whole number of ticks
+     */
+    private long ticksUntil(long dueMillis) {
+        long remaining = dueMillis - getTimeMillis();
+        return Math.max(1, (remaining + tickMillis - 1) / tickMillis);
+    }
+
+    /**
+     * @return how many wolves, rest spots and resources the sheep touched; package-private
+     *         for the JMH benchmarks
+     */
+    int checkCollisions() {
+        // Left over from the last tick otherwise, and read by the collision event
+        restingSpotHits.clear();
+        objectHits.clear();
+        if (collisionMode == CollisionMode.SWEPT) {
+            return checkSweptCollisions();
+        }
+        // Check wolf-sheep collisions first
+        if (wolfGrid.anyOverlapping(sheep)) {
+            sheep.die();
+            return 1;
+        }
+
+        // Check resting spot collisions (never removed)
+        sheep.setOnRestSpot(false);
+        restingSpotGrid.query(sheep, restingSpotHits);
+        for (int i = 0; i < restingSpotHits.size(); i++) {
+            sheep.setOnRestSpot(true);
+            sheep.rest(restingSpotHits.get(i));
+        }
+
+        objectGrid.query(sheep, objectHits);
+        for (int i = 0; i < objectHits.size(); i++) {
+            LocatableShape obj = objectHits.get(i);
+            if (obj instanceof Grass) {
+                sheep.eat((Grass) obj);
+                removeObject(obj);
+            } else if (obj instanceof Water) {
+                sheep.drink((Water) obj);
+                removeObject(obj);
+            }
+        }
+        return restingSpotHits.size() + objectHits.size();
+    }
+
+    private int checkSweptCollisions() {
+        // Sweep integer locations, so the end of the move matches the discrete test exactly
+        int x0 = (int) Math.round(sheep.getPrevXPos());
+        int y0 = (int) Math.round(sheep.getPrevYPos());
+        int dx = sheep.getLocationX() - x0;
+        int dy = sheep.getLocationY() - y0;
+        int w = sheep.getWidth();
+        int h = sheep.getHeight();
+        int minX = Math.min(x0, x0 + dx);
+        int minY = Math.min(y0, y0 + dy);
+        int maxX = Math.max(x0, x0 + dx) + w;
+        int maxY = Math.max(y0, y0 + dy) + h;
+
+        // Wolves move too, so test the sheep's motion relative to each wolf. The grid holds
+        // wolves where they ended up, so look as far around the sheep's path as they can move
+        wolfHits.clear();
+        wolfGrid.queryBounds(minX - wolfReach, minY - wolfReach, maxX + wolfReach, maxY + wolfReach, wolfHits);
+        for (int i = 0; i < wolfHits.size(); i++) {
+            Wolf wolf = wolfHits.get(i);
+            int wx0 = (int) Math.round(wolf.getPrevXPos());
+            int wy0 = (int) Math.round(wolf.getPrevYPos());
+            int wdx = wolf.getLocationX() - wx0;
+            int wdy = wolf.getLocationY() - wy0;
+            if (Sweep.timeOfImpact(x0, y0, w, h, dx - wdx, dy - wdy, wx0, wy0, wolf.getWidth(), wolf.getHeight()) <= 1) {
+                sheep.die();
+                return 1;
+            }
+        }
+
+        // Resting is a state, not a pickup, so rest spots only count where the sheep ends up
+        sheep.setOnRestSpot(false);
+        restingSpotGrid.query(sheep, restingSpotHits);
+        for (int i = 0; i < restingSpotHits.size(); i++) {
+            sheep.setOnRestSpot(true);
+            sheep.rest(restingSpotHits.get(i));
+        }
+        int contacts = restingSpotHits.size();
+
+        objectGrid.queryBounds(minX, minY, maxX, maxY, objectHits);
+        for (int i = 0; i < objectHits.size(); i++) {
+            LocatableShape obj = objectHits.get(i);
+            if (Sweep.timeOfImpact(x0, y0, w, h, dx, dy, obj.getLocationX(), obj.getLocationY(), obj.getWidth(), obj.getHeight()) > 1) {
+                continue;
+            }
+            contacts++;
+            if (obj instanceof Grass) {
+                sheep.eat((Grass) obj);
+                removeObject(obj);
+            } else if (obj instanceof Water) {
+                sheep.drink((Water) obj);
+                removeObject(obj);
+            }
+        }
+        return contacts;
+    }
+
+    // Wolves are tested where they ended up, even in swept mode; followers are not worth a sweep
+    private int catchFollowers() {
+        int caught = 0;
+        for (int i = 0; i < wolves.size(); i++) {
+            Wolf w = wolves.get(i);
+            caught += flock.catchInBounds(w.getLocationX(), w.getLocationY(),
+                    w.getLocationX() + w.getWidth(), w.getLocationY() + w.getHeight());
+        }
+        flock.removeCaught();
+        return caught;
+    }
+
+    private void addObject(LocatableShape obj) {
+        otherObjects.insert(obj);
+        objectGrid.insert(obj);
+        staticLayerVersion++;
+    }
+
+    // Package-private for the JMH benchmarks
+    void removeObject(LocatableShape obj) {
+        otherObjects.delete(obj);
+        objectGrid.remove(obj);
+        staticLayerVersion++;
+    }
+
+    private void initialize() {
+        if (chunks != null) {
+            // Resources and rest spots come with the chunks around the sheep
+            updateChunks();
+        } else {
+            for (int i = 0; i < initialResourceCount(difficultyLevel); i++) {
+                createNewObject();
+            }
+        }
+
+        // Create wolves based on difficulty
+        int wolfCount = Math.max(0, (difficultyLevel - 1) / 2);
+        double chaseSpeed = wolfChaseSpeed(difficultyLevel);
+        double roamSpeed = 0.8 + difficultyLevel * 0.15;
+        double detectRadius = 150 + difficultyLevel * 25;
+        for (int i = 0; i < wolfCount; i++) {
+            Wolf wolf = wolfPack.add(chaseSpeed, roamSpeed, detectRadius, wolfRandom.nextLong());
+            wolves.add(wolf);
+            wolfGrid.insert(wolf);
+        }
+
+        if (chunks != null) {
+            return;
+        }
+        // Create resting spots — fewer at higher difficulty
+        for (int i = 0; i < restingSpotCount(difficultyLevel); i++) {
+            RestingSpot rs = newRestingSpot(difficultyLevel, layoutRandom, spawnPlacer, 0, 0, staticLayerVersion);
+            if (rs == null) {
+                break;
+            }
+            restingSpots.add(rs);
+            restingSpotGrid.insert(rs);
+            staticLayerVersion++;
+        }
+    }
+
+    private void updateChunks() {
+        if (chunks.update(sheep.getXPos() + sheep.getWidth() / 2.0, sheep.getYPos() + sheep.getHeight() / 2.0,
+                sheep.getVx(), sheep.getVy())) {
+            staticLayerVersion++;
+            updateRoamArea();
+            wolfPack.recallStragglers();
+        }
+    }
+
+    private void updateRoamArea() {
+        wolfPack.setRoamArea(chunks.getWindowX(), chunks.getWindowY(), chunks.getWindowWidth(), chunks.getWindowHeight());
+    }
+
+    /**
+     * Spawns a random resource on a free spot of the field, or in a streamed world of a
+     * random live chunk.
+     *
+     * @return false if there is no room for it; package-private for the JMH benchmarks
+     */
+    boolean createNewObject() {
+        int originX = 0;
+        int originY = 0;
+        if (chunks != null) {
+            long chunk = chunks.randomLiveChunk(spawnRandom);
+            originX = SpawnPlacer.unpackX(chunk);
+            originY = SpawnPlacer.unpackY(chunk);
+        }
+        LocatableShape obj = newResource(difficultyLevel, spawnRandom, spawnPlacer, originX, originY, staticLayerVersion);
+        if (obj == null) {
+            return false;
+        }
+        addObject(obj);
+        return true;
+    }
+
+    static int initialResourceCount(int difficultyLevel) {
+        return 11 - difficultyLevel;
+    }
+
+    // Fewer at higher difficulty
+    static int restingSpotCount(int difficultyLevel) {
+        return Math.max(1, 4 - difficultyLevel / 3);
+    }
+
+    /**
+     * @return a random grass patch or puddle on a free spot of the placer's area at the
+     *         given origin, or null if there is no room for it
+     */
+    static LocatableShape newResource(int difficultyLevel, RandomStream random, SpawnPlacer placer,
+                                      int originX, int originY, long layoutVersion) {
+        // Scale size and value: difficulty 1 → full, difficulty 10 → 55%
+        double scale = 1.0 - (difficultyLevel - 1) * 0.05;
+
+        int oType = random.nextInt(2);
+        int maxSize = Math.max(10, (int) (70 * scale));
+        int minSize = Math.max(5, (int) (20 * scale));
+        int height = random.nextInt(maxSize) + minSize;
+        int width = random.nextInt(maxSize) + minSize;
+        int value = random.nextInt(Math.max(1, (int) (300 * scale)));
+        long corner = placer.place(originX, originY, width, height, random, layoutVersion);
+        if (corner == SpawnPlacer.FULL) {
+            return null;
+        }
+        int locX = SpawnPlacer.unpackX(corner);
+        int locY = SpawnPlacer.unpackY(corner);
+
+        if (oType == 0) {
+            return new Grass(value, locX, locY, width, height);
+        }
+        return new Water(value, locX, locY, width, height);
+    }
+
+    /**
+     * @return a random rest spot on a free spot of the placer's area at the given origin,
+     *         or null if there is no room for it
+     */
+    static RestingSpot newRestingSpot(int difficultyLevel, RandomStream random, SpawnPlacer placer,
+                                      int originX, int originY, long layoutVersion) {
+        double scale = 1.0 - (difficultyLevel - 1) * 0.05;
+        int minRestSize = Math.max(30, (int) (60 * scale));
+        int restSizeRange = Math.max(20, (int) (40 * scale));
+        int w = minRestSize + random.nextInt(restSizeRange);
+        int h = minRestSize + random.nextInt(restSizeRange);
+        long corner = placer.place(originX, originY, w, h, random, layoutVersion);
+        if (corner == SpawnPlacer.FULL) {
+            return null;
+        }
+        return new RestingSpot(SpawnPlacer.unpackX(corner), SpawnPlacer.unpackY(corner), w, h, difficultyLevel);
+    }
+
+    /**
+     * Writes a resource tagged with its kind, at most {@link #MAX_RESOURCE_BYTES} bytes.
+     */
+    static void writeResource(ByteBuffer out, LocatableShape obj) {
+        if (obj instanceof Grass) {
+            out.put(GRASS);
+            ((Grass) obj).writeState(out);
+        } else {
+            out.put(WATER);
+            ((Water) obj).writeState(out);
+        }
+    }
+
+    static LocatableShape readResource(ByteBuffer in) {
+        return in.get() == GRASS ? Grass.readState(in) : Water.readState(in);
+    }
+
+    private static double wolfChaseSpeed(int difficultyLevel) {
+        return 2.0 + difficultyLevel * 0.25;
+    }
+}
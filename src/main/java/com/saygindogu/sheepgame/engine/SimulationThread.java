@@ -0,0 +1,174 @@
+package com.saygindogu.sheepgame.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs one {@link SimulationEngine} on a dedicated thread in real time. The engine is
+ * confined to that thread: input arrives through a lock-free command queue that is
+ * drained before each tick, and after every tick a {@link WorldFrame} is published
+ * through an atomic reference. A slow renderer therefore never holds up a tick, and a
+ * slow tick never blocks the thread that submits input. When the loop ends, the same
+ * thread finishes the engine's replay recording, if it has one.
+ * <p>
+ * Frames are recycled rather than allocated per tick. Readers {@link #acquireFrame()
+ * acquire} the published frame and release it when done; the loop refills the first
+ * pooled frame that is neither published nor held, and only grows the pool when every
+ * frame is in use. With one renderer and the HUD that settles at about three frames.
+ */
+public class SimulationThread {
+
+    private final SimulationEngine engine;
+    private final long maxCatchUpNanos;
+    private final ConcurrentLinkedQueue<SheepCommand> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<WorldFrame> frame = new AtomicReference<>();
+    // Confined to the simulation thread once it starts
+    private final List<WorldFrame> pool = new ArrayList<>();
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * @param maxCatchUpMillis longest stretch of missed ticks replayed after a stall;
+     *                         anything beyond it is dropped
+     */
+    public SimulationThread(SimulationEngine engine, long maxCatchUpMillis) {
+        this.engine = engine;
+        this.maxCatchUpNanos = maxCatchUpMillis * 1_000_000;
+        WorldFrame first = new WorldFrame();
+        first.fill(engine, null, System.nanoTime());
+        pool.add(first);
+        frame.set(first);
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "sheepgame-simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the loop and waits for the current tick to finish and the replay, if any, to
+     * be written out.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread == null) {
+            // Never started, so nothing else touches the engine
+            finishRecording();
+            return;
+        }
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * Queues a steering input for the next tick. Safe to call from any thread.
+     */
+    public void submit(SheepCommand command) {
+        commands.add(command);
+    }
+
+    /**
+     * Holds on to the most recently published frame until {@link #releaseFrame} is called
+     * with it. Safe to call from any thread; never blocks the simulation.
+     */
+    public WorldFrame acquireFrame() {
+        while (true) {
+            WorldFrame published = frame.get();
+            published.retain();
+            // Only a frame that is still published after the stamp cannot be mid-refill
+            if (frame.get() == published) {
+                return published;
+            }
+            published.release();
+        }
+    }
+
+    /**
+     * Hands a frame from {@link #acquireFrame()} back for reuse; it must not be read after this.
+     */
+    public void releaseFrame(WorldFrame released) {
+        released.release();
+    }
+
+    private void run() {
+        try {
+            tickUntilStopped();
+        } finally {
+            finishRecording();
+        }
+    }
+
+    private void tickUntilStopped() {
+        long tickNanos = engine.getTickMillis() * 1_000_000L;
+        long next = System.nanoTime() + tickNanos;
+        while (running && !engine.isOver()) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            if (now - next > maxCatchUpNanos) {
+                next = now - maxCatchUpNanos;
+            }
+
+            SheepCommand command;
+            while ((command = commands.poll()) != null) {
+                command.apply(engine.getSheep());
+            }
+            long tickTime = next;
+            while (next <= now && running && !engine.isOver()) {
+                tickTime = next;
+                engine.tick();
+                next += tickNanos;
+            }
+            WorldFrame published = frame.get();
+            WorldFrame filled = freeFrame(published);
+            filled.fill(engine, published, tickTime);
+            frame.set(filled);
+        }
+    }
+
+    private void finishRecording() {
+        ReplayRecorder recorder = engine.getRecorder();
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            System.err.println("Could not finish the replay: " + e);
+        }
+    }
+
+    private WorldFrame freeFrame(WorldFrame published) {
+        for (int i = 0; i < pool.size(); i++) {
+            WorldFrame f = pool.get(i);
+            if (f != published && !f.isHeld()) {
+                return f;
+            }
+        }
+        WorldFrame f = new WorldFrame();
+        pool.add(f);
+        return f;
+    }
+}
@@ -0,0 +1,56 @@
+package com.saygindogu.sheepgame.engine;
+
+import com.saygindogu.sheepgame.model.Flock;
+import com.saygindogu.sheepgame.model.LocatableShape;
+import com.saygindogu.sheepgame.model.RestingSpot;
+import com.saygindogu.sheepgame.model.Sheep;
+import com.saygindogu.sheepgame.model.WolfPack;
+import lombok.Getter;
+
+/**
+ * In-memory copy of a {@link SimulationEngine}'s state, for planners that try out many
+ * futures from one position. Movers are copied field by field into a spare sheep, flock
+ * and wolf pack, whose state lives in flat primitive arrays. Resources and rest spots
+ * are never changed while they are on the field, so a snapshot only holds references
+ * to them; consecutive snapshots of an unchanged field share one array, and in a
+ * streamed world one copy of the chunk bookkeeping.
+ *
+ * A snapshot can be refilled with {@link SimulationEngine#snapshot(Snapshot)} and
+ * restored any number of times, into the engine it came from or any engine of the same
+ * difficulty, tick length and world size.
+ */
+public final class Snapshot {
+
+    @Getter
+    private final int difficultyLevel;
+    @Getter
+    private final int tickMillis;
+    @Getter
+    private final int worldWidth;
+    @Getter
+    private final int worldHeight;
+    @Getter
+    long tickCount;
+    long staticLayerVersion;
+    long accumulatorNanos;
+    long nextSpawnMillis;
+    long nextVitalsMillis;
+    long layoutRandomState;
+    long spawnRandomState;
+    long wolfRandomState;
+    final Sheep sheep;
+    final Flock flock = new Flock();
+    final WolfPack wolfPack = new WolfPack();
+    LocatableShape[] objects;
+    RestingSpot[] restingSpots;
+    // Null on the screen-sized field
+    WorldChunks.Saved chunks;
+
+    Snapshot(int difficultyLevel, int tickMillis, int worldWidth, int worldHeight) {
+        this.difficultyLevel = difficultyLevel;
+        this.tickMillis = tickMillis;
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        sheep = new Sheep(difficultyLevel);
+    }
+}
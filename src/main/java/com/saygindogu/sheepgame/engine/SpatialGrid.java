@@ -0,0 +1,550 @@
+package com.saygindogu.sheepgame.engine;
+
+import com.saygindogu.sheepgame.model.LocatableShape;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Uniform-grid spatial hash over the bounds of {@link LocatableShape}s. Each shape is
+ * registered in every cell its bounds touch, so overlap queries only look at the cells
+ * under the query rectangle instead of every shape in the world.
+ *
+ * Bounds are treated the same way {@link LocatableShape#overlaps(LocatableShape)} treats
+ * them: edges are inclusive, so shapes that merely touch are reported as overlapping.
+ * Cells live in an open-addressing table keyed by cell coordinates, so the grid is
+ * unbounded and empty cells are dropped as soon as their last shape leaves. Dropped
+ * cells are kept on a free list and reused, so movers crossing cell borders do not
+ * allocate.
+ *
+ * {@link #nearest} answers k-nearest-neighbour queries by searching rings of cells
+ * outward from the query point, stopping once no unvisited cell could hold anything
+ * closer than the k-th best so far. Small grids are scanned outright instead, which is
+ * cheaper than probing mostly empty cells.
+ *
+ * Not thread-safe; the simulation owns its grids.
+ */
+public class SpatialGrid<T extends LocatableShape> {
+
+    private static final int INITIAL_TABLE_SIZE = 64;
+    // Up to this many items a nearest-neighbour query scans them all
+    private static final int NEAREST_SCAN_MAX = 128;
+
+    private final int cellSize;
+    private final IdentityHashMap<T, Entry<T>> entries = new IdentityHashMap<>();
+    // The same entries and their items packed densely, for scans
+    @SuppressWarnings("unchecked")
+    private Entry<T>[] dense = (Entry<T>[]) new Entry[16];
+    private LocatableShape[] denseItems = new LocatableShape[16];
+    private long[] keys = new long[INITIAL_TABLE_SIZE];
+    private Cell<T>[] cells = newCellTable(INITIAL_TABLE_SIZE);
+    private int cellCount;
+    private Cell<T> freeCells;
+    private int queryStamp;
+    // Cell range every item has ever touched since the last clear; bounds ring searches
+    private int extentMinCx = Integer.MAX_VALUE;
+    private int extentMinCy = Integer.MAX_VALUE;
+    private int extentMaxCx = Integer.MIN_VALUE;
+    private int extentMaxCy = Integer.MIN_VALUE;
+    // Items visited by the running nearest() call, so it can stop once it has seen them all
+    private int nearestSeen;
+
+    public SpatialGrid(int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    public void insert(T item) {
+        if (entries.containsKey(item)) {
+            throw new IllegalArgumentException("Already indexed: " + item);
+        }
+        Entry<T> e = new Entry<>(item);
+        entries.put(item, e);
+        if (entries.size() > dense.length) {
+            dense = Arrays.copyOf(dense, dense.length * 2);
+            denseItems = Arrays.copyOf(denseItems, dense.length);
+        }
+        e.index = entries.size() - 1;
+        dense[e.index] = e;
+        denseItems[e.index] = item;
+        setRange(e);
+        addToCells(e);
+    }
+
+    public boolean remove(T item) {
+        Entry<T> e = entries.remove(item);
+        if (e == null) {
+            return false;
+        }
+        int lastIndex = entries.size();
+        Entry<T> last = dense[lastIndex];
+        dense[e.index] = last;
+        denseItems[e.index] = last.item;
+        last.index = e.index;
+        dense[lastIndex] = null;
+        denseItems[lastIndex] = null;
+        removeFromCells(e);
+        return true;
+    }
+
+    /**
+     * Re-indexes an item after it moved or was resized. Cheap when the item stays
+     * within the same cells, which is the common case for a mover between two ticks.
+     */
+    public void update(T item) {
+        Entry<T> e = entries.get(item);
+        if (e == null) {
+            throw new IllegalArgumentException("Not indexed: " + item);
+        }
+        int minCx = cell(item.getLocationX());
+        int minCy = cell(item.getLocationY());
+        int maxCx = cell(item.getLocationX() + item.getWidth());
+        int maxCy = cell(item.getLocationY() + item.getHeight());
+        if (minCx == e.minCx && minCy == e.minCy && maxCx == e.maxCx && maxCy == e.maxCy) {
+            return;
+        }
+        removeFromCells(e);
+        setRange(e);
+        addToCells(e);
+    }
+
+    public void clear() {
+        entries.clear();
+        Arrays.fill(dense, null);
+        Arrays.fill(denseItems, null);
+        keys = new long[INITIAL_TABLE_SIZE];
+        cells = newCellTable(INITIAL_TABLE_SIZE);
+        cellCount = 0;
+        freeCells = null;
+        extentMinCx = Integer.MAX_VALUE;
+        extentMinCy = Integer.MAX_VALUE;
+        extentMaxCx = Integer.MIN_VALUE;
+        extentMaxCy = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Appends every indexed item overlapping {@code shape} to {@code out}, each at most once.
+     * The shape itself is skipped if it is indexed.
+     *
+     * @return the number of items appended
+     */
+    public int query(LocatableShape shape, List<? super T> out) {
+        int found = 0;
+        int stamp = nextStamp();
+        int maxCx = cell(shape.getLocationX() + shape.getWidth());
+        int maxCy = cell(shape.getLocationY() + shape.getHeight());
+        for (int cx = cell(shape.getLocationX()); cx <= maxCx; cx++) {
+            for (int cy = cell(shape.getLocationY()); cy <= maxCy; cy++) {
+                Cell<T> c = findCell(cx, cy);
+                if (c == null) {
+                    continue;
+                }
+                for (int i = 0; i < c.size; i++) {
+                    Entry<T> e = c.items[i];
+                    if (e.stamp == stamp) {
+                        continue;
+                    }
+                    e.stamp = stamp;
+                    if (e.item != shape && shape.overlaps(e.item)) {
+                        out.add(e.item);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Appends every indexed item whose bounds touch the rectangle from ({@code minX},
+     * {@code minY}) to ({@code maxX}, {@code maxY}), edges included, each at most once.
+     * Used as the broad phase for swept tests, where the rectangle covers a whole move.
+     *
+     * @return the number of items appended
+     */
+    public int queryBounds(int minX, int minY, int maxX, int maxY, List<? super T> out) {
+        int found = 0;
+        int stamp = nextStamp();
+        int maxCx = cell(maxX);
+        int maxCy = cell(maxY);
+        for (int cx = cell(minX); cx <= maxCx; cx++) {
+            for (int cy = cell(minY); cy <= maxCy; cy++) {
+                Cell<T> c = findCell(cx, cy);
+                if (c == null) {
+                    continue;
+                }
+                for (int i = 0; i < c.size; i++) {
+                    Entry<T> e = c.items[i];
+                    if (e.stamp == stamp) {
+                        continue;
+                    }
+                    e.stamp = stamp;
+                    T item = e.item;
+                    if (item.getLocationX() <= maxX && item.getLocationX() + item.getWidth() >= minX
+                            && item.getLocationY() <= maxY && item.getLocationY() + item.getHeight() >= minY) {
+                        out.add(item);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return whether any indexed item's bounds touch the rectangle from ({@code minX},
+     *         {@code minY}) to ({@code maxX}, {@code maxY}), edges included; the same test
+     *         as {@link #anyOverlapping} for a rectangle that is not a shape
+     */
+    public boolean anyInBounds(int minX, int minY, int maxX, int maxY) {
+        int maxCx = cell(maxX);
+        int maxCy = cell(maxY);
+        for (int cx = cell(minX); cx <= maxCx; cx++) {
+            for (int cy = cell(minY); cy <= maxCy; cy++) {
+                Cell<T> c = findCell(cx, cy);
+                if (c == null) {
+                    continue;
+                }
+                for (int i = 0; i < c.size; i++) {
+                    T item = c.items[i].item;
+                    if (item.getLocationX() <= maxX && item.getLocationX() + item.getWidth() >= minX
+                            && item.getLocationY() <= maxY && item.getLocationY() + item.getHeight() >= minY) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the {@code k} indexed items whose centres are nearest to ({@code x}, {@code y}).
+     * Results go into {@code out} and their distances into {@code distances}, closest
+     * first; both must hold at least {@code k} elements. Allocates nothing.
+     *
+     * @param type only items of this class are considered, or null for all
+     * @return the number of items found, at most {@code k}
+     */
+    public int nearest(double x, double y, int k, Class<?> type, T[] out, double[] distances) {
+        if (k <= 0 || extentMinCx > extentMaxCx) {
+            return 0;
+        }
+        int total = entries.size();
+        if (total <= NEAREST_SCAN_MAX) {
+            return nearestByScan(x, y, k, type, out, distances, total);
+        }
+        int found = 0;
+        int stamp = nextStamp();
+        nearestSeen = 0;
+        int qcx = (int) Math.floor(x / cellSize);
+        int qcy = (int) Math.floor(y / cellSize);
+        // Distance from the query point to the nearest edge of its own cell
+        double fx = x - (double) qcx * cellSize;
+        double fy = y - (double) qcy * cellSize;
+        double edge = Math.min(Math.min(fx, cellSize - fx), Math.min(fy, cellSize - fy));
+        int maxRing = Math.max(Math.max(Math.abs(qcx - extentMinCx), Math.abs(qcx - extentMaxCx)),
+                Math.max(Math.abs(qcy - extentMinCy), Math.abs(qcy - extentMaxCy)));
+
+        for (int r = 0; r <= maxRing && nearestSeen < total; r++) {
+            if (found == k && r > 0) {
+                // Anything not yet seen has its centre in ring r or beyond
+                double bound = (r - 1) * (double) cellSize + edge;
+                if (distances[k - 1] <= bound * bound) {
+                    break;
+                }
+            }
+            if (r == 0) {
+                found = nearestInCell(qcx, qcy, x, y, k, type, out, distances, found, stamp);
+                continue;
+            }
+            for (int cx = qcx - r; cx <= qcx + r; cx++) {
+                found = nearestInCell(cx, qcy - r, x, y, k, type, out, distances, found, stamp);
+                found = nearestInCell(cx, qcy + r, x, y, k, type, out, distances, found, stamp);
+            }
+            for (int cy = qcy - r + 1; cy <= qcy + r - 1; cy++) {
+                found = nearestInCell(qcx - r, cy, x, y, k, type, out, distances, found, stamp);
+                found = nearestInCell(qcx + r, cy, x, y, k, type, out, distances, found, stamp);
+            }
+        }
+        for (int i = 0; i < found; i++) {
+            distances[i] = Math.sqrt(distances[i]);
+        }
+        return found;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int nearestByScan(double x, double y, int k, Class<?> type, T[] out, double[] distances, int total) {
+        int found = 0;
+        LocatableShape[] items = denseItems;
+        for (int i = 0; i < total; i++) {
+            LocatableShape item = items[i];
+            if (type == null || item.getClass() == type || type.isInstance(item)) {
+                found = offerNearest((T) item, x, y, k, out, distances, found);
+            }
+        }
+        for (int i = 0; i < found; i++) {
+            distances[i] = Math.sqrt(distances[i]);
+        }
+        return found;
+    }
+
+    private int nearestInCell(int cx, int cy, double x, double y, int k, Class<?> type,
+                              T[] out, double[] distances, int found, int stamp) {
+        if (cx < extentMinCx || cx > extentMaxCx || cy < extentMinCy || cy > extentMaxCy) {
+            return found;
+        }
+        Cell<T> c = findCell(cx, cy);
+        if (c == null) {
+            return found;
+        }
+        for (int i = 0; i < c.size; i++) {
+            Entry<T> e = c.items[i];
+            if (e.stamp == stamp) {
+                continue;
+            }
+            e.stamp = stamp;
+            nearestSeen++;
+            T item = e.item;
+            if (type != null && !type.isInstance(item)) {
+                continue;
+            }
+            found = offerNearest(item, x, y, k, out, distances, found);
+        }
+        return found;
+    }
+
+    // Squared distances while searching, kept sorted by insertion; k is a handful
+    private int offerNearest(T item, double x, double y, int k, T[] out, double[] distances, int found) {
+        double dx = item.getLocationX() + item.getWidth() / 2.0 - x;
+        double dy = item.getLocationY() + item.getHeight() / 2.0 - y;
+        double d = dx * dx + dy * dy;
+        int j = found < k ? found++ : k;
+        while (j > 0 && distances[j - 1] > d) {
+            if (j < k) {
+                distances[j] = distances[j - 1];
+                out[j] = out[j - 1];
+            }
+            j--;
+        }
+        if (j < k) {
+            distances[j] = d;
+            out[j] = item;
+        }
+        return found;
+    }
+
+    /**
+     * @return whether any indexed item other than {@code shape} itself overlaps it
+     */
+    public boolean anyOverlapping(LocatableShape shape) {
+        int maxCx = cell(shape.getLocationX() + shape.getWidth());
+        int maxCy = cell(shape.getLocationY() + shape.getHeight());
+        for (int cx = cell(shape.getLocationX()); cx <= maxCx; cx++) {
+            for (int cy = cell(shape.getLocationY()); cy <= maxCy; cy++) {
+                Cell<T> c = findCell(cx, cy);
+                if (c == null) {
+                    continue;
+                }
+                for (int i = 0; i < c.size; i++) {
+                    T item = c.items[i].item;
+                    if (item != shape && shape.overlaps(item)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private int cell(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    private int nextStamp() {
+        if (++queryStamp == 0) {
+            // Wrapped around: old stamps could collide with new ones, so reset them all
+            for (Entry<T> e : entries.values()) {
+                e.stamp = 0;
+            }
+            queryStamp = 1;
+        }
+        return queryStamp;
+    }
+
+    private void setRange(Entry<T> e) {
+        T item = e.item;
+        e.minCx = cell(item.getLocationX());
+        e.minCy = cell(item.getLocationY());
+        e.maxCx = cell(item.getLocationX() + item.getWidth());
+        e.maxCy = cell(item.getLocationY() + item.getHeight());
+        extentMinCx = Math.min(extentMinCx, e.minCx);
+        extentMinCy = Math.min(extentMinCy, e.minCy);
+        extentMaxCx = Math.max(extentMaxCx, e.maxCx);
+        extentMaxCy = Math.max(extentMaxCy, e.maxCy);
+    }
+
+    private void addToCells(Entry<T> e) {
+        for (int cx = e.minCx; cx <= e.maxCx; cx++) {
+            for (int cy = e.minCy; cy <= e.maxCy; cy++) {
+                getOrCreateCell(cx, cy).add(e);
+            }
+        }
+    }
+
+    private void removeFromCells(Entry<T> e) {
+        for (int cx = e.minCx; cx <= e.maxCx; cx++) {
+            for (int cy = e.minCy; cy <= e.maxCy; cy++) {
+                int slot = findSlot(cx, cy);
+                Cell<T> c = cells[slot];
+                if (c != null && c.remove(e) && c.size == 0) {
+                    deleteSlot(slot);
+                }
+            }
+        }
+    }
+
+    // --- Open-addressing table of cells, linear probing ---
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private int home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+    }
+
+    /**
+     * @return the slot holding the cell, or the empty slot where it would be inserted
+     */
+    private int findSlot(int cx, int cy) {
+        long k = key(cx, cy);
+        int mask = keys.length - 1;
+        int slot = home(k);
+        while (cells[slot] != null && keys[slot] != k) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private Cell<T> findCell(int cx, int cy) {
+        return cells[findSlot(cx, cy)];
+    }
+
+    private Cell<T> getOrCreateCell(int cx, int cy) {
+        int slot = findSlot(cx, cy);
+        if (cells[slot] != null) {
+            return cells[slot];
+        }
+        if ((cellCount + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+            slot = findSlot(cx, cy);
+        }
+        Cell<T> c = freeCells;
+        if (c != null) {
+            freeCells = c.nextFree;
+            c.nextFree = null;
+        } else {
+            c = new Cell<>();
+        }
+        keys[slot] = key(cx, cy);
+        cells[slot] = c;
+        cellCount++;
+        return c;
+    }
+
+    private void deleteSlot(int slot) {
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        int mask = keys.length - 1;
+        cells[slot].nextFree = freeCells;
+        freeCells = cells[slot];
+        cells[slot] = null;
+        cellCount--;
+        int hole = slot;
+        int next = (slot + 1) & mask;
+        while (cells[next] != null) {
+            int h = home(keys[next]);
+            boolean movable = hole <= next ? (h <= hole || h > next) : (h <= hole && h > next);
+            if (movable) {
+                keys[hole] = keys[next];
+                cells[hole] = cells[next];
+                cells[next] = null;
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    private void rehash(int newSize) {
+        long[] oldKeys = keys;
+        Cell<T>[] oldCells = cells;
+        keys = new long[newSize];
+        cells = newCellTable(newSize);
+        int mask = newSize - 1;
+        for (int i = 0; i < oldCells.length; i++) {
+            if (oldCells[i] != null) {
+                int slot = home(oldKeys[i]);
+                while (cells[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                cells[slot] = oldCells[i];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends LocatableShape> Cell<T>[] newCellTable(int size) {
+        return (Cell<T>[]) new Cell[size];
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        int minCx;
+        int minCy;
+        int maxCx;
+        int maxCy;
+        int stamp;
+        int index;
+
+        Entry(T item) {
+            this.item = item;
+        }
+    }
+
+    private static final class Cell<T> {
+        @SuppressWarnings("unchecked")
+        Entry<T>[] items = (Entry<T>[]) new Entry[4];
+        int size;
+        Cell<T> nextFree;
+
+        void add(Entry<T> e) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = e;
+        }
+
+        boolean remove(Entry<T> e) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == e) {
+                    items[i] = items[--size];
+                    items[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.saygindogu.sheepgame.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Resource spawns that fell due in one tick.
+ */
+@Name("com.saygindogu.sheepgame.Spawn")
+@Label("Resource Spawn")
+@Category({"Sheep Game", "Simulation"})
+@Description("Resources placed on free spots of the field")
+@Enabled(false)
+@StackTrace(false)
+class SpawnEvent extends Event {
+
+    @Label("Tick")
+    long tick;
+
+    @Label("Spawned")
+    int spawned;
+
+    @Label("Rejected")
+    @Description("Spawns dropped because the area had no room")
+    int rejected;
+
+    @Label("Attempts")
+    @Description("Random spots tried before one was free or the placer fell back to its occupancy table")
+    int attempts;
+
+    @Label("Table Fallbacks")
+    @Description("Spawns placed by counting free spots, after every random spot was taken")
+    int tableFallbacks;
+}
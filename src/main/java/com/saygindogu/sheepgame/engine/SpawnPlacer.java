@@ -0,0 +1,188 @@
+package com.saygindogu.sheepgame.engine;
+
+import com.saygindogu.sheepgame.model.LocatableShape;
+import com.saygindogu.sheepgame.model.RestingSpot;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds free spots for new resources and rest spots within an area of fixed size, the
+ * whole field or one chunk of a streamed world. A few random corners are tried
+ * first, each tested against the engine's spatial grids. If all are taken the field is
+ * crowded, and every shape on it marks the cells of a coarse occupancy bitmap it touches;
+ * a summed-area table over the bitmap then tells in constant time whether a rectangle
+ * covers a marked cell, so every cell-aligned corner can be counted and one of the free
+ * ones picked. A placement therefore either succeeds or the field is definitely full for
+ * that size, in time bounded by the number of cells.
+ *
+ * Cells are marked whenever a shape touches them at all, edges included as in
+ * {@link LocatableShape#overlaps}, so the fallback never overlaps anything; the price is
+ * that it treats gaps narrower than a cell as taken.
+ */
+final class SpawnPlacer {
+
+    /** Side of one occupancy cell, in pixels. */
+    static final int CELL_SIZE = 8;
+    /** Returned by {@link #place} when no free position exists. */
+    static final long FULL = -1;
+
+    private static final int RANDOM_ATTEMPTS = 8;
+
+    private final int width;
+    private final int height;
+    private final List<LocatableShape> objects;
+    private final List<RestingSpot> restingSpots;
+    private final SpatialGrid<LocatableShape> objectGrid;
+    private final SpatialGrid<RestingSpot> restingSpotGrid;
+
+    private final int cols;
+    private final int rows;
+    private final byte[] occupied;
+    // sums[r * (cols + 1) + c] = marked cells above and left of cell (c, r)
+    private final int[] sums;
+    private boolean tableValid;
+    private long tableVersion;
+    private int tableOriginX;
+    private int tableOriginY;
+    // Running totals since the placer was made, for the spawn event
+    long attempts;
+    long tableFallbacks;
+
+    SpawnPlacer(int width, int height, List<LocatableShape> objects, SpatialGrid<LocatableShape> objectGrid,
+                List<RestingSpot> restingSpots, SpatialGrid<RestingSpot> restingSpotGrid) {
+        this.width = width;
+        this.height = height;
+        this.objects = objects;
+        this.objectGrid = objectGrid;
+        this.restingSpots = restingSpots;
+        this.restingSpotGrid = restingSpotGrid;
+        cols = (width + CELL_SIZE - 1) / CELL_SIZE;
+        rows = (height + CELL_SIZE - 1) / CELL_SIZE;
+        occupied = new byte[cols * rows];
+        sums = new int[(cols + 1) * (rows + 1)];
+    }
+
+    /**
+     * Forgets the occupancy table, for when the field was replaced wholesale and its
+     * layout version may repeat one the table was built for.
+     */
+    void invalidate() {
+        tableValid = false;
+    }
+
+    /**
+     * Picks a free top-left corner for a {@code w} by {@code h} shape lying wholly inside
+     * the area whose top-left corner is ({@code originX}, {@code originY}), drawing from
+     * {@code random}.
+     *
+     * @param layoutVersion the engine's static layer version, which moves whenever a
+     *                      resource or rest spot is added or removed
+     * @return the corner packed as {@code x << 32 | y}, or {@link #FULL}
+     */
+    long place(int originX, int originY, int w, int h, RandomStream random, long layoutVersion) {
+        int maxX = width - w;
+        int maxY = height - h;
+        if (maxX < 0 || maxY < 0) {
+            return FULL;
+        }
+        for (int attempt = 0; attempt < RANDOM_ATTEMPTS; attempt++) {
+            attempts++;
+            int x = originX + random.nextInt(maxX + 1);
+            int y = originY + random.nextInt(maxY + 1);
+            if (!objectGrid.anyInBounds(x, y, x + w, y + h) && !restingSpotGrid.anyInBounds(x, y, x + w, y + h)) {
+                return pack(x, y);
+            }
+        }
+
+        // Crowded: count the free cell-aligned corners and take one of them at random
+        tableFallbacks++;
+        if (!tableValid || tableVersion != layoutVersion || tableOriginX != originX || tableOriginY != originY) {
+            rebuild(originX, originY);
+            tableVersion = layoutVersion;
+            tableOriginX = originX;
+            tableOriginY = originY;
+        }
+        int free = 0;
+        for (int y = 0; y <= maxY; y += CELL_SIZE) {
+            for (int x = 0; x <= maxX; x += CELL_SIZE) {
+                if (isFree(x, y, w, h)) {
+                    free++;
+                }
+            }
+        }
+        if (free == 0) {
+            return FULL;
+        }
+        int pick = random.nextInt(free);
+        for (int y = 0; y <= maxY; y += CELL_SIZE) {
+            for (int x = 0; x <= maxX; x += CELL_SIZE) {
+                if (isFree(x, y, w, h) && pick-- == 0) {
+                    return pack(originX + x, originY + y);
+                }
+            }
+        }
+        throw new IllegalStateException("Free corner count changed during placement");
+    }
+
+    static int unpackX(long corner) {
+        return (int) (corner >>> 32);
+    }
+
+    static int unpackY(long corner) {
+        return (int) corner;
+    }
+
+    private static long pack(int x, int y) {
+        return ((long) x << 32) | y;
+    }
+
+    private void rebuild(int originX, int originY) {
+        Arrays.fill(occupied, (byte) 0);
+        mark(objects, originX, originY);
+        mark(restingSpots, originX, originY);
+        int stride = cols + 1;
+        for (int r = 0; r < rows; r++) {
+            int rowSum = 0;
+            for (int c = 0; c < cols; c++) {
+                rowSum += occupied[r * cols + c];
+                sums[(r + 1) * stride + c + 1] = sums[r * stride + c + 1] + rowSum;
+            }
+        }
+        tableValid = true;
+    }
+
+    private boolean isFree(int x, int y, int w, int h) {
+        // The shape touches pixels x..x+w and y..y+h inclusive; the far edge of a shape
+        // flush with the field falls in the last cell
+        int c0 = x / CELL_SIZE;
+        int r0 = y / CELL_SIZE;
+        int c1 = Math.min(cols - 1, (x + w) / CELL_SIZE);
+        int r1 = Math.min(rows - 1, (y + h) / CELL_SIZE);
+        int stride = cols + 1;
+        int count = sums[(r1 + 1) * stride + c1 + 1] - sums[r0 * stride + c1 + 1]
+                - sums[(r1 + 1) * stride + c0] + sums[r0 * stride + c0];
+        return count == 0;
+    }
+
+    private void mark(List<? extends LocatableShape> shapes, int originX, int originY) {
+        for (int i = 0; i < shapes.size(); i++) {
+            LocatableShape s = shapes.get(i);
+            int x = s.getLocationX() - originX;
+            int y = s.getLocationY() - originY;
+            if (x > width || y > height || x + s.getWidth() < 0 || y + s.getHeight() < 0) {
+                continue;
+            }
+            // A shape just past the far edge still touches the last cell
+            int c0 = Math.min(cols - 1, Math.max(0, Math.floorDiv(x, CELL_SIZE)));
+            int r0 = Math.min(rows - 1, Math.max(0, Math.floorDiv(y, CELL_SIZE)));
+            int c1 = Math.min(cols - 1, Math.floorDiv(x + s.getWidth(), CELL_SIZE));
+            int r1 = Math.min(rows - 1, Math.floorDiv(y + s.getHeight(), CELL_SIZE));
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    occupied[r * cols + c] = 1;
+                }
+            }
+        }
+    }
+}
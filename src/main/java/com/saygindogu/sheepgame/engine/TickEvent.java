@@ -0,0 +1,35 @@
+package com.saygindogu.sheepgame.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call to {@link SimulationEngine#tick()}, from timed events through movement to
+ * contacts. Off unless a recording turns it on, as the settings shipped in
+ * {@code sheepgame.jfc} do.
+ */
+@Name("com.saygindogu.sheepgame.Tick")
+@Label("Tick")
+@Category({"Sheep Game", "Simulation"})
+@Description("One simulation tick")
+@Enabled(false)
+@StackTrace(false)
+class TickEvent extends Event {
+
+    @Label("Tick")
+    long tick;
+
+    @Label("Wolves")
+    int wolves;
+
+    @Label("Followers")
+    int followers;
+
+    @Label("Resources")
+    int resources;
+}
@@ -0,0 +1,246 @@
+package com.saygindogu.sheepgame.engine;
+
+/**
+ * Hierarchical timing wheel that runs delayed and periodic tasks in simulated ticks. It
+ * only moves when {@link #advance()} is called, so scheduled events keep pace with the
+ * engine whether a match runs in real time, fast-forwarded or headless.
+ *
+ * Four levels of 64 slots cover delays up to 2^24 ticks (about three days at 16 ms per
+ * tick); longer delays wait in an overflow list that is re-examined once per full turn.
+ * Each slot is an intrusive doubly linked list, so scheduling and cancelling are O(1).
+ * A timer in a higher level is moved down once per level as its deadline approaches.
+ * Timers due on the same tick run in the order they were scheduled, unless a move down
+ * from a higher level put them in the slot later.
+ */
+public class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long RANGE = 1L << (SLOT_BITS * LEVELS);
+
+    /**
+     * Handle on a scheduled task.
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private final long period;
+        private long deadline;
+        private Timeout prev;
+        private Timeout next;
+        private boolean scheduled;
+        private boolean cancelled;
+
+        private Timeout(Runnable task, long deadline, long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * Cancels the task if it has not run yet, or stops a periodic one from running
+         * again. Safe to call from inside the task itself.
+         */
+        public void cancel() {
+            if (scheduled) {
+                unlink(this);
+                size--;
+            }
+            cancelled = true;
+        }
+
+        public boolean isScheduled() {
+            return scheduled;
+        }
+
+        /**
+         * @return the tick this task runs on next
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    private final Timeout[] wheel = new Timeout[LEVELS * SLOTS];
+    private final Timeout overflow;
+    private long currentTick;
+    private int size;
+
+    public TimingWheel() {
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = sentinel();
+        }
+        overflow = sentinel();
+    }
+
+    /**
+     * @return the last tick the wheel has advanced to
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * @return the number of scheduled tasks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Runs {@code task} once, {@code delayTicks} ticks from now.
+     *
+     * @param delayTicks at least 1
+     */
+    public Timeout schedule(long delayTicks, Runnable task) {
+        return schedule(delayTicks, 0, task);
+    }
+
+    /**
+     * Runs {@code task} {@code delayTicks} ticks from now and then every {@code periodTicks}
+     * ticks until cancelled.
+     */
+    public Timeout schedulePeriodic(long delayTicks, long periodTicks, Runnable task) {
+        if (periodTicks <= 0) {
+            throw new IllegalArgumentException("periodTicks must be positive: " + periodTicks);
+        }
+        return schedule(delayTicks, periodTicks, task);
+    }
+
+    private Timeout schedule(long delayTicks, long periodTicks, Runnable task) {
+        if (delayTicks <= 0) {
+            throw new IllegalArgumentException("delayTicks must be positive: " + delayTicks);
+        }
+        Timeout timeout = new Timeout(task, currentTick + delayTicks, periodTicks);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Schedules {@code timeout}'s task to run once more, {@code delayTicks} ticks from now,
+     * whether or not it has already run or been cancelled. Lets a task that re-arms itself
+     * keep one handle instead of allocating a new one each time.
+     */
+    public void reschedule(Timeout timeout, long delayTicks) {
+        if (delayTicks <= 0) {
+            throw new IllegalArgumentException("delayTicks must be positive: " + delayTicks);
+        }
+        if (timeout.scheduled) {
+            unlink(timeout);
+            size--;
+        }
+        timeout.cancelled = false;
+        timeout.deadline = currentTick + delayTicks;
+        place(timeout);
+        size++;
+    }
+
+    /**
+     * Moves to the next tick and runs every task due on it.
+     */
+    public void advance() {
+        long tick = ++currentTick;
+
+        if ((tick & (RANGE - 1)) == 0) {
+            replace(overflow);
+        }
+        // Bring timers down from higher levels, top first, when a lower level wraps around
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                replace(wheel[level * SLOTS + slot(tick, level)]);
+            }
+        }
+
+        Timeout due = wheel[slot(tick, 0)];
+        while (due.next != due) {
+            Timeout timeout = due.next;
+            unlink(timeout);
+            size--;
+            timeout.task.run();
+            if (timeout.period > 0 && !timeout.cancelled) {
+                timeout.deadline += timeout.period;
+                place(timeout);
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Cancels every scheduled task.
+     */
+    public void clear() {
+        for (Timeout head : wheel) {
+            cancelAll(head);
+        }
+        cancelAll(overflow);
+    }
+
+    /**
+     * Cancels every scheduled task and moves the wheel to {@code tick}, for when the
+     * owner's clock is restored from a snapshot.
+     */
+    public void reset(long tick) {
+        if (size > 0) {
+            clear();
+        }
+        currentTick = tick;
+    }
+
+    private void place(Timeout timeout) {
+        long delay = timeout.deadline - currentTick;
+        Timeout head;
+        if (delay >= RANGE) {
+            head = overflow;
+        } else {
+            int level = 0;
+            while (delay >= (1L << (SLOT_BITS * (level + 1)))) {
+                level++;
+            }
+            head = wheel[level * SLOTS + slot(timeout.deadline, level)];
+        }
+        // Append, so timers due on the same tick keep their scheduling order
+        timeout.scheduled = true;
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    private void replace(Timeout head) {
+        Timeout timeout = head.next;
+        head.next = head;
+        head.prev = head;
+        while (timeout != head) {
+            Timeout next = timeout.next;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    private static void cancelAll(Timeout head) {
+        while (head.next != head) {
+            head.next.cancel();
+        }
+    }
+
+    private static void unlink(Timeout timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.scheduled = false;
+    }
+
+    private static int slot(long tick, int level) {
+        return (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+    }
+
+    private Timeout sentinel() {
+        Timeout head = new Timeout(null, 0, 0);
+        head.prev = head;
+        head.next = head;
+        return head;
+    }
+}
@@ -0,0 +1,209 @@
+package com.saygindogu.sheepgame.engine;
+
+import com.saygindogu.sheepgame.model.Grass;
+import com.saygindogu.sheepgame.model.LocatableShape;
+import com.saygindogu.sheepgame.model.Sheep;
+import com.saygindogu.sheepgame.model.Water;
+import com.saygindogu.sheepgame.model.Wolf;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_X;
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_Y;
+
+/**
+ * Gym-style batch of headless matches stepped in lockstep, for training agents to play
+ * the sheep. One {@link #step(int[])} call applies an action to every match, runs it and
+ * writes observations, rewards and done flags into buffers that are allocated once, so
+ * a trainer can read them in place without copying.
+ *
+ * An action is a mask of {@code Sheep.INPUT_*} bits saying which directions are held,
+ * the same as pressing or releasing keys through {@code goUp()}/{@code stopUp()} and the
+ * rest; there are 16 actions. A step earns the seconds of simulated time survived.
+ * A finished match is reset straight away with the next seed, so the observation
+ * after a done flag is the first one of the new match.
+ *
+ * Observations are floats in one direct, native-order buffer, {@link #getObservationSize()}
+ * per match. Positions are relative to the sheep's centre and scaled by the field size;
+ * missing wolves or resources read as all zeros.
+ * <pre>
+ * 0      hunger, thirst, fatigue, each as a fraction of its maximum
+ * 3      sheep x, y as fractions of the field, vx, vy as fractions of its top speed
+ * 7      per nearest wolf, closest first: present, dx, dy, chasing
+ * 7+4k   nearest grass: present, dx, dy; then nearest water: present, dx, dy
+ * </pre>
+ * Stepping allocates nothing, except when a finished match is replaced by a new one.
+ */
+public class VectorEnv {
+
+    private static final int SHEEP_FEATURES = 7;
+    private static final int WOLF_FEATURES = 4;
+    private static final int RESOURCE_FEATURES = 3;
+
+    @Getter
+    private final int numEnvs;
+    @Getter
+    private final int difficultyLevel;
+    @Getter
+    private final int nearestWolves;
+    @Getter
+    private final int ticksPerStep;
+    @Getter
+    private final long maxEpisodeTicks;
+    @Getter
+    private final int observationSize;
+    private final SimulationEngine[] engines;
+    @Getter
+    private final FloatBuffer observations;
+    /** Reward each match earned in the last step. */
+    @Getter
+    private final float[] rewards;
+    /** Set for matches that ended in the last step, by death or the tick limit. */
+    @Getter
+    private final boolean[] dones;
+    /** Set for matches that hit the tick limit in the last step with the sheep alive. */
+    @Getter
+    private final boolean[] truncated;
+    private long nextSeed;
+
+    // Nearest-neighbour query results
+    private final Wolf[] wolfScratch;
+    private final LocatableShape[] objectScratch = new LocatableShape[1];
+    private final double[] distanceScratch;
+
+    /**
+     * @param ticksPerStep    ticks an action is held for before the next observation
+     * @param maxEpisodeTicks tick limit after which a match counts as done, or 0 for none
+     */
+    public VectorEnv(int numEnvs, int difficultyLevel, int nearestWolves, int ticksPerStep, long maxEpisodeTicks) {
+        if (numEnvs <= 0) {
+            throw new IllegalArgumentException("numEnvs must be positive: " + numEnvs);
+        }
+        if (ticksPerStep <= 0) {
+            throw new IllegalArgumentException("ticksPerStep must be positive: " + ticksPerStep);
+        }
+        this.numEnvs = numEnvs;
+        this.difficultyLevel = difficultyLevel;
+        this.nearestWolves = nearestWolves;
+        this.ticksPerStep = ticksPerStep;
+        this.maxEpisodeTicks = maxEpisodeTicks;
+        observationSize = SHEEP_FEATURES + nearestWolves * WOLF_FEATURES + 2 * RESOURCE_FEATURES;
+        engines = new SimulationEngine[numEnvs];
+        observations = ByteBuffer.allocateDirect(numEnvs * observationSize * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        rewards = new float[numEnvs];
+        dones = new boolean[numEnvs];
+        truncated = new boolean[numEnvs];
+        wolfScratch = new Wolf[nearestWolves];
+        distanceScratch = new double[Math.max(1, nearestWolves)];
+    }
+
+    /**
+     * Starts a new match in every slot, seeded {@code seed}, {@code seed + 1}, ...; matches
+     * started later by auto-reset continue the sequence.
+     */
+    public void reset(long seed) {
+        nextSeed = seed;
+        for (int i = 0; i < numEnvs; i++) {
+            rewards[i] = 0;
+            dones[i] = false;
+            truncated[i] = false;
+            resetEnv(i);
+        }
+    }
+
+    /**
+     * Holds {@code actions[i]} for match {@code i} for {@link #getTicksPerStep()} ticks,
+     * then refills the observation, reward and done buffers.
+     */
+    public void step(int[] actions) {
+        if (actions.length != numEnvs) {
+            throw new IllegalArgumentException("Expected " + numEnvs + " actions, got " + actions.length);
+        }
+        for (int i = 0; i < numEnvs; i++) {
+            SimulationEngine engine = engines[i];
+            engine.getSheep().setInputMask(actions[i]);
+            long before = engine.getTickCount();
+            for (int t = 0; t < ticksPerStep && !engine.isOver(); t++) {
+                engine.tick();
+            }
+            rewards[i] = (engine.getTickCount() - before) * engine.getTickMillis() / 1000f;
+            truncated[i] = !engine.isOver() && maxEpisodeTicks > 0 && engine.getTickCount() >= maxEpisodeTicks;
+            dones[i] = engine.isOver() || truncated[i];
+            if (dones[i]) {
+                resetEnv(i);
+            } else {
+                observe(i);
+            }
+        }
+    }
+
+    /**
+     * @return the engine behind slot {@code i}, replaced whenever its match ends
+     */
+    public SimulationEngine getEngine(int i) {
+        return engines[i];
+    }
+
+    private void resetEnv(int i) {
+        engines[i] = new SimulationEngine(difficultyLevel, nextSeed++);
+        observe(i);
+    }
+
+    private void observe(int i) {
+        SimulationEngine engine = engines[i];
+        Sheep sheep = engine.getSheep();
+        FloatBuffer obs = observations;
+        int o = i * observationSize;
+        double cx = sheep.getXPos() + sheep.getWidth() / 2.0;
+        double cy = sheep.getYPos() + sheep.getHeight() / 2.0;
+
+        obs.put(o++, sheep.getHunger() / (float) Sheep.MAX_HUNGER);
+        obs.put(o++, sheep.getThirst() / (float) Sheep.MAX_THIRST);
+        obs.put(o++, (float) (sheep.getFatigue() / Sheep.MAX_FATIGUE));
+        obs.put(o++, (float) (sheep.getXPos() / GAME_SIZE_X));
+        obs.put(o++, (float) (sheep.getYPos() / GAME_SIZE_Y));
+        obs.put(o++, (float) (sheep.getVx() / sheep.getMaxSpeed()));
+        obs.put(o++, (float) (sheep.getVy() / sheep.getMaxSpeed()));
+
+        int found = engine.nearestWolves(cx, cy, nearestWolves, wolfScratch, distanceScratch);
+        for (int k = 0; k < nearestWolves; k++) {
+            if (k < found) {
+                Wolf w = wolfScratch[k];
+                obs.put(o, 1f);
+                obs.put(o + 1, (float) ((w.getXPos() + w.getWidth() / 2.0 - cx) / GAME_SIZE_X));
+                obs.put(o + 2, (float) ((w.getYPos() + w.getHeight() / 2.0 - cy) / GAME_SIZE_Y));
+                obs.put(o + 3, w.getState() == Wolf.State.CHASING ? 1f : 0f);
+            } else {
+                obs.put(o, 0f);
+                obs.put(o + 1, 0f);
+                obs.put(o + 2, 0f);
+                obs.put(o + 3, 0f);
+            }
+            o += WOLF_FEATURES;
+        }
+
+        o = putNearest(obs, o, engine, Grass.class, cx, cy);
+        putNearest(obs, o, engine, Water.class, cx, cy);
+    }
+
+    private int putNearest(FloatBuffer obs, int o, SimulationEngine engine, Class<? extends LocatableShape> type,
+                           double cx, double cy) {
+        LocatableShape best = engine.nearestObjects(cx, cy, 1, type, objectScratch, distanceScratch) == 0
+                ? null : objectScratch[0];
+        if (best == null) {
+            obs.put(o, 0f);
+            obs.put(o + 1, 0f);
+            obs.put(o + 2, 0f);
+        } else {
+            obs.put(o, 1f);
+            obs.put(o + 1, (float) ((best.getLocationX() + best.getWidth() / 2.0 - cx) / GAME_SIZE_X));
+            obs.put(o + 2, (float) ((best.getLocationY() + best.getHeight() / 2.0 - cy) / GAME_SIZE_Y));
+        }
+        return o + RESOURCE_FEATURES;
+    }
+}
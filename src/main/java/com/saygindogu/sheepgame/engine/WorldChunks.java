@@ -0,0 +1,452 @@
+package com.saygindogu.sheepgame.engine;
+
+import com.saygindogu.sheepgame.model.LocatableShape;
+import com.saygindogu.sheepgame.model.RestingSpot;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_X;
+import static com.saygindogu.sheepgame.SheepGame.GAME_SIZE_Y;
+
+/**
+ * Streams the resources and rest spots of a world larger than one screen, in square
+ * chunks. Only the chunks around the sheep are live, in the engine's store and grids; a
+ * chunk is loaded when it comes within {@link #ACTIVE_RADIUS} chunks of the sheep's and
+ * packed away into bytes, in the same form as a keyframe, once it is further than
+ * {@link #EVICT_RADIUS}, so the engine's cost follows the neighbourhood rather than the
+ * world.
+ *
+ * A chunk's first contents are a pure function of the match seed and the chunk's
+ * position, drawn from a stream of its own, so they can be made on a background thread
+ * ahead of time: whenever the sheep enters another chunk, the ring just past the live
+ * ones is generated in the direction it is heading. A chunk that is needed before its
+ * generation finished is waited for, or made on the spot if it was never asked for, and
+ * is the same either way, so streaming never changes how a match plays out.
+ *
+ * Every resource and rest spot lies wholly inside one chunk and belongs to it.
+ */
+final class WorldChunks {
+
+    static final int CHUNK_SIZE = 512;
+    /** Chunks this many chunks from the sheep's, either way, are live. */
+    static final int ACTIVE_RADIUS = 2;
+    /** Live chunks are only packed away this far out, so pacing along a border does not thrash. */
+    static final int EVICT_RADIUS = 3;
+    private static final int PREFETCH_RADIUS = ACTIVE_RADIUS + 1;
+
+    private static final double FIELD_AREA = (double) GAME_SIZE_X * GAME_SIZE_Y;
+    private static final double CHUNK_AREA = (double) CHUNK_SIZE * CHUNK_SIZE;
+    private static final Comparator<LocatableShape> BY_POSITION =
+            Comparator.comparingInt(LocatableShape::getLocationY).thenComparingInt(LocatableShape::getLocationX);
+
+    private final int difficultyLevel;
+    private final long seed;
+    private final int cols;
+    private final int rows;
+    private final ResourceStore objects;
+    private final SpatialGrid<LocatableShape> objectGrid;
+    private final List<RestingSpot> restingSpots;
+    private final SpatialGrid<RestingSpot> restingSpotGrid;
+    private final List<LocatableShape> objectHits = new ArrayList<>();
+    private final List<RestingSpot> restingSpotHits = new ArrayList<>();
+
+    // Sorted, so eviction and keyframes visit chunks in the same order on every run
+    private final TreeSet<Long> live = new TreeSet<>();
+    private final TreeMap<Long, byte[]> packed = new TreeMap<>();
+    private final Map<Long, CompletableFuture<byte[]>> pending = new HashMap<>();
+    // Chunk the live window is centred on
+    private int centreX = -1;
+    private int centreY = -1;
+    // Handed to snapshots until the chunks change again
+    private Saved saved;
+
+    /**
+     * @param seed         the match seed
+     * @param worldWidth   a whole number of chunks
+     * @param worldHeight  a whole number of chunks
+     */
+    WorldChunks(int difficultyLevel, long seed, int worldWidth, int worldHeight, ResourceStore objects,
+                SpatialGrid<LocatableShape> objectGrid, List<RestingSpot> restingSpots,
+                SpatialGrid<RestingSpot> restingSpotGrid) {
+        this.difficultyLevel = difficultyLevel;
+        this.seed = seed;
+        cols = worldWidth / CHUNK_SIZE;
+        rows = worldHeight / CHUNK_SIZE;
+        this.objects = objects;
+        this.objectGrid = objectGrid;
+        this.restingSpots = restingSpots;
+        this.restingSpotGrid = restingSpotGrid;
+    }
+
+    /**
+     * @return {@code size} rounded up to a whole number of chunks
+     */
+    static int roundUp(int size) {
+        return (size + CHUNK_SIZE - 1) / CHUNK_SIZE * CHUNK_SIZE;
+    }
+
+    /**
+     * @return how many resources one spawn adds across the live window, so that resources
+     *         turn up as often per screen as on the screen-sized field
+     */
+    static int spawnsPerInterval() {
+        int side = 2 * ACTIVE_RADIUS + 1;
+        return Math.max(1, (int) (side * side * CHUNK_AREA / FIELD_AREA));
+    }
+
+    int getWindowX() {
+        return Math.max(0, centreX - ACTIVE_RADIUS) * CHUNK_SIZE;
+    }
+
+    int getWindowY() {
+        return Math.max(0, centreY - ACTIVE_RADIUS) * CHUNK_SIZE;
+    }
+
+    int getWindowWidth() {
+        return (Math.min(cols - 1, centreX + ACTIVE_RADIUS) + 1) * CHUNK_SIZE - getWindowX();
+    }
+
+    int getWindowHeight() {
+        return (Math.min(rows - 1, centreY + ACTIVE_RADIUS) + 1) * CHUNK_SIZE - getWindowY();
+    }
+
+    /**
+     * Loads and packs away chunks around the position, (x, y), and prefetches toward
+     * the heading (dx, dy). Cheap unless the position is in another chunk than last time.
+     *
+     * @return whether any chunk was loaded or packed away
+     */
+    boolean update(double x, double y, double dx, double dy) {
+        int cx = clamp((int) Math.floor(x / CHUNK_SIZE), cols);
+        int cy = clamp((int) Math.floor(y / CHUNK_SIZE), rows);
+        if (cx == centreX && cy == centreY) {
+            return false;
+        }
+        centreX = cx;
+        centreY = cy;
+        saved = null;
+
+        for (Iterator<Long> it = live.iterator(); it.hasNext(); ) {
+            long key = it.next();
+            if (distance(key) > EVICT_RADIUS) {
+                pack(key);
+                it.remove();
+            }
+        }
+        for (int r = Math.max(0, cy - ACTIVE_RADIUS); r <= Math.min(rows - 1, cy + ACTIVE_RADIUS); r++) {
+            for (int c = Math.max(0, cx - ACTIVE_RADIUS); c <= Math.min(cols - 1, cx + ACTIVE_RADIUS); c++) {
+                long key = key(c, r);
+                if (live.add(key)) {
+                    load(contents(key));
+                }
+            }
+        }
+        prefetch(dx, dy);
+        return true;
+    }
+
+    /**
+     * @return the top-left corner of a random live chunk, packed as {@code x << 32 | y}
+     */
+    long randomLiveChunk(RandomStream random) {
+        int c0 = Math.max(0, centreX - ACTIVE_RADIUS);
+        int r0 = Math.max(0, centreY - ACTIVE_RADIUS);
+        int c = c0 + random.nextInt(Math.min(cols - 1, centreX + ACTIVE_RADIUS) - c0 + 1);
+        int r = r0 + random.nextInt(Math.min(rows - 1, centreY + ACTIVE_RADIUS) - r0 + 1);
+        return ((long) (c * CHUNK_SIZE) << 32) | (r * CHUNK_SIZE);
+    }
+
+    /**
+     * Writes which chunks are live and every packed-away chunk. The live chunks' contents
+     * are the engine's resources and rest spots, written with those.
+     */
+    void writeState(ByteBuffer out) {
+        out.putInt(centreX);
+        out.putInt(centreY);
+        out.putInt(live.size());
+        for (long key : live) {
+            out.putLong(key);
+        }
+        out.putInt(packed.size());
+        for (Map.Entry<Long, byte[]> e : packed.entrySet()) {
+            out.putLong(e.getKey());
+            out.putInt(e.getValue().length);
+            out.put(e.getValue());
+        }
+    }
+
+    /**
+     * Replaces the chunk bookkeeping with state written by {@link #writeState(ByteBuffer)};
+     * the engine restores the live contents itself.
+     */
+    void readState(ByteBuffer in) {
+        centreX = in.getInt();
+        centreY = in.getInt();
+        live.clear();
+        for (int i = in.getInt(); i > 0; i--) {
+            live.add(in.getLong());
+        }
+        packed.clear();
+        for (int i = in.getInt(); i > 0; i--) {
+            long key = in.getLong();
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            packed.put(key, bytes);
+        }
+        saved = null;
+    }
+
+    /**
+     * @return the bookkeeping as it is now, shared by snapshots until it changes
+     */
+    Saved save() {
+        if (saved == null) {
+            saved = new Saved(this);
+        }
+        return saved;
+    }
+
+    /**
+     * Puts the bookkeeping back as {@code state} had it; the engine restores the live
+     * contents itself.
+     */
+    void restore(Saved state) {
+        if (state == saved) {
+            return;
+        }
+        centreX = state.centreX;
+        centreY = state.centreY;
+        live.clear();
+        for (long key : state.live) {
+            live.add(key);
+        }
+        packed.clear();
+        for (int i = 0; i < state.packedKeys.length; i++) {
+            packed.put(state.packedKeys[i], state.packedChunks[i]);
+        }
+        saved = state;
+    }
+
+    private void prefetch(double dx, double dy) {
+        // Drop requests the sheep has turned away from; they can be remade any time
+        for (Iterator<Map.Entry<Long, CompletableFuture<byte[]>>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, CompletableFuture<byte[]>> e = it.next();
+            if (distance(e.getKey()) > PREFETCH_RADIUS) {
+                e.getValue().cancel(false);
+                it.remove();
+            }
+        }
+        boolean still = dx == 0 && dy == 0;
+        for (int r = centreY - PREFETCH_RADIUS; r <= centreY + PREFETCH_RADIUS; r++) {
+            for (int c = centreX - PREFETCH_RADIUS; c <= centreX + PREFETCH_RADIUS; c++) {
+                if (c < 0 || r < 0 || c >= cols || r >= rows
+                        || Math.max(Math.abs(c - centreX), Math.abs(r - centreY)) != PREFETCH_RADIUS
+                        || (!still && (c - centreX) * dx + (r - centreY) * dy <= 0)) {
+                    continue;
+                }
+                long key = key(c, r);
+                if (!live.contains(key) && !packed.containsKey(key) && !pending.containsKey(key)) {
+                    int chunkX = c;
+                    int chunkY = r;
+                    pending.put(key, CompletableFuture.supplyAsync(
+                            () -> generate(difficultyLevel, chunkSeed(chunkX, chunkY), chunkX * CHUNK_SIZE, chunkY * CHUNK_SIZE),
+                            Generator.POOL));
+                }
+            }
+        }
+    }
+
+    private byte[] contents(long key) {
+        byte[] bytes = packed.remove(key);
+        if (bytes != null) {
+            return bytes;
+        }
+        CompletableFuture<byte[]> request = pending.remove(key);
+        if (request != null) {
+            return request.join();
+        }
+        int c = keyX(key);
+        int r = keyY(key);
+        return generate(difficultyLevel, chunkSeed(c, r), c * CHUNK_SIZE, r * CHUNK_SIZE);
+    }
+
+    private void load(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        for (int i = in.getInt(); i > 0; i--) {
+            RestingSpot rs = RestingSpot.readState(in, difficultyLevel);
+            restingSpots.add(rs);
+            restingSpotGrid.insert(rs);
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            LocatableShape obj = SimulationEngine.readResource(in);
+            objects.insert(obj);
+            objectGrid.insert(obj);
+        }
+    }
+
+    private void pack(long key) {
+        int x = keyX(key) * CHUNK_SIZE;
+        int y = keyY(key) * CHUNK_SIZE;
+        restingSpotHits.clear();
+        restingSpotGrid.queryBounds(x, y, x + CHUNK_SIZE, y + CHUNK_SIZE, restingSpotHits);
+        restingSpotHits.removeIf(rs -> !owns(key, rs));
+        objectHits.clear();
+        objectGrid.queryBounds(x, y, x + CHUNK_SIZE, y + CHUNK_SIZE, objectHits);
+        objectHits.removeIf(obj -> !owns(key, obj));
+        // Grid order depends on how the grid was filled; position order does not, and
+        // shapes never overlap, so no two share a corner
+        restingSpotHits.sort(BY_POSITION);
+        objectHits.sort(BY_POSITION);
+
+        ByteBuffer out = ByteBuffer.allocate(8 + restingSpotHits.size() * 16 + objectHits.size() * SimulationEngine.MAX_RESOURCE_BYTES);
+        out.putInt(restingSpotHits.size());
+        for (RestingSpot rs : restingSpotHits) {
+            rs.writeState(out);
+            restingSpots.remove(rs);
+            restingSpotGrid.remove(rs);
+        }
+        out.putInt(objectHits.size());
+        for (LocatableShape obj : objectHits) {
+            SimulationEngine.writeResource(out, obj);
+            objects.delete(obj);
+            objectGrid.remove(obj);
+        }
+        byte[] bytes = new byte[out.position()];
+        out.flip().get(bytes);
+        packed.put(key, bytes);
+    }
+
+    /**
+     * @return a chunk's first contents, in the form {@link #pack} writes
+     */
+    static byte[] generate(int difficultyLevel, long chunkSeed, int originX, int originY) {
+        RandomStream random = new RandomStream(chunkSeed);
+        List<LocatableShape> objects = new ArrayList<>();
+        List<RestingSpot> restingSpots = new ArrayList<>();
+        SpatialGrid<LocatableShape> objectGrid = new SpatialGrid<>(SimulationEngine.GRID_CELL_SIZE);
+        SpatialGrid<RestingSpot> restingSpotGrid = new SpatialGrid<>(SimulationEngine.GRID_CELL_SIZE);
+        SpawnPlacer placer = new SpawnPlacer(CHUNK_SIZE, CHUNK_SIZE, objects, objectGrid, restingSpots, restingSpotGrid);
+        long version = 0;
+
+        // As many as the screen-sized field starts with, per unit of area
+        int restCount = count(SimulationEngine.restingSpotCount(difficultyLevel) * CHUNK_AREA / FIELD_AREA, random);
+        for (int i = 0; i < restCount; i++) {
+            RestingSpot rs = SimulationEngine.newRestingSpot(difficultyLevel, random, placer, originX, originY, version);
+            if (rs == null) {
+                break;
+            }
+            restingSpots.add(rs);
+            restingSpotGrid.insert(rs);
+            version++;
+        }
+        int objectCount = count(SimulationEngine.initialResourceCount(difficultyLevel) * CHUNK_AREA / FIELD_AREA, random);
+        for (int i = 0; i < objectCount; i++) {
+            LocatableShape obj = SimulationEngine.newResource(difficultyLevel, random, placer, originX, originY, version);
+            if (obj == null) {
+                break;
+            }
+            objects.add(obj);
+            objectGrid.insert(obj);
+            version++;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(8 + restingSpots.size() * 16 + objects.size() * SimulationEngine.MAX_RESOURCE_BYTES);
+        out.putInt(restingSpots.size());
+        for (RestingSpot rs : restingSpots) {
+            rs.writeState(out);
+        }
+        out.putInt(objects.size());
+        for (LocatableShape obj : objects) {
+            SimulationEngine.writeResource(out, obj);
+        }
+        byte[] bytes = new byte[out.position()];
+        out.flip().get(bytes);
+        return bytes;
+    }
+
+    // The whole part of expected, plus one with the chance of its fraction
+    private static int count(double expected, RandomStream random) {
+        int whole = (int) expected;
+        return whole + (random.nextInt(1 << 16) < (expected - whole) * (1 << 16) ? 1 : 0);
+    }
+
+    private long chunkSeed(int c, int r) {
+        return RandomStream.derive(RandomStream.derive(seed, SimulationEngine.CHUNK_STREAM), key(c, r));
+    }
+
+    private static boolean owns(long key, LocatableShape shape) {
+        return Math.floorDiv(shape.getLocationX(), CHUNK_SIZE) == keyX(key)
+                && Math.floorDiv(shape.getLocationY(), CHUNK_SIZE) == keyY(key);
+    }
+
+    private int distance(long key) {
+        return Math.max(Math.abs(keyX(key) - centreX), Math.abs(keyY(key) - centreY));
+    }
+
+    private static long key(int c, int r) {
+        return ((long) c << 32) | r;
+    }
+
+    private static int keyX(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int keyY(long key) {
+        return (int) key;
+    }
+
+    private static int clamp(int v, int n) {
+        return v < 0 ? 0 : (v >= n ? n - 1 : v);
+    }
+
+    /**
+     * The bookkeeping at one moment, never changed once made.
+     */
+    static final class Saved {
+        private final int centreX;
+        private final int centreY;
+        private final long[] live;
+        private final long[] packedKeys;
+        // Packed chunks are never written to once made, so they are shared, not copied
+        private final byte[][] packedChunks;
+
+        private Saved(WorldChunks chunks) {
+            centreX = chunks.centreX;
+            centreY = chunks.centreY;
+            live = new long[chunks.live.size()];
+            int i = 0;
+            for (long key : chunks.live) {
+                live[i++] = key;
+            }
+            packedKeys = new long[chunks.packed.size()];
+            packedChunks = new byte[chunks.packed.size()][];
+            i = 0;
+            for (Map.Entry<Long, byte[]> e : chunks.packed.entrySet()) {
+                packedKeys[i] = e.getKey();
+                packedChunks[i++] = e.getValue();
+            }
+        }
+    }
+
+    // Started on first use, so matches on the screen-sized field never start its threads
+    private static final class Generator {
+        static final ExecutorService POOL = Executors.newFixedThreadPool(
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2), r -> {
+                    Thread t = new Thread(r, "chunk-generator");
+                    // Generation is pure, so nothing is lost if the VM exits mid-way
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+}
@@ -0,0 +1,269 @@
+package com.saygindogu.sheepgame.engine;
+
+import com.saygindogu.sheepgame.model.Flock;
+import com.saygindogu.sheepgame.model.LocatableShape;
+import com.saygindogu.sheepgame.model.Sheep;
+import com.saygindogu.sheepgame.model.Wolf;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picture of a match right after a tick, published by {@link SimulationThread} for
+ * renderers and the HUD. A reader that acquired a frame can read it without locking while
+ * the simulation moves on; once released, the simulation may refill it for a later tick,
+ * reusing its arrays while they are large enough. Movers carry their position from before
+ * and after the tick so a renderer can interpolate; resources and rest spots are only
+ * copied when the engine's static layer version moves, and are otherwise shared with the
+ * previous frame.
+ */
+public final class WorldFrame {
+
+    @Getter
+    private long tickCount;
+    @Getter
+    private boolean over;
+    /** When the tick that produced this frame was due, on the {@link System#nanoTime()} clock. */
+    @Getter
+    private long tickTimeNanos;
+    @Getter
+    private long tickLengthNanos;
+    @Getter
+    private int worldWidth;
+    @Getter
+    private int worldHeight;
+
+    private double sheepPrevX;
+    private double sheepPrevY;
+    private double sheepX;
+    private double sheepY;
+    @Getter
+    private int sheepLocationX;
+    @Getter
+    private int sheepLocationY;
+    @Getter
+    private int sheepWidth;
+    @Getter
+    private int sheepHeight;
+    @Getter
+    private int hunger;
+    @Getter
+    private int thirst;
+    @Getter
+    private double fatigue;
+
+    // Followers in single precision; a large flock would otherwise double the frame
+    @Getter
+    private int flockSize;
+    private float[] flockPrevX = new float[0];
+    private float[] flockPrevY = new float[0];
+    private float[] flockX = new float[0];
+    private float[] flockY = new float[0];
+
+    @Getter
+    private int wolfCount;
+    private double[] wolfPrevX = new double[0];
+    private double[] wolfPrevY = new double[0];
+    private double[] wolfX = new double[0];
+    private double[] wolfY = new double[0];
+    private int[] wolfLocationX = new int[0];
+    private int[] wolfLocationY = new int[0];
+    private double[] wolfDetectionRadius = new double[0];
+    private Wolf.State[] wolfState = new Wolf.State[0];
+    /** Distance between the sheep's and the nearest wolf's locations, or {@link Double#MAX_VALUE}. */
+    @Getter
+    private double nearestWolfDistance;
+    /** Detection radius of the nearest wolf, or 0 if there are none. */
+    @Getter
+    private double nearestWolfDetectionRadius;
+
+    @Getter
+    private long staticLayerVersion;
+    /** Rest spots, then resources, in paint order; in a streamed world only the live ones. */
+    @Getter
+    private List<LocatableShape> staticShapes;
+
+    /** Readers holding this frame; the simulation only refills it while this is zero. */
+    private final AtomicInteger readers = new AtomicInteger();
+
+    WorldFrame() {
+    }
+
+    /**
+     * Copies the engine's current state into this frame. Must run on the thread that owns
+     * the engine, and only while no reader holds the frame.
+     */
+    void fill(SimulationEngine engine, WorldFrame previous, long tickTimeNanos) {
+        tickCount = engine.getTickCount();
+        over = engine.isOver();
+        this.tickTimeNanos = tickTimeNanos;
+        tickLengthNanos = engine.getTickMillis() * 1_000_000L;
+        worldWidth = engine.getWorldWidth();
+        worldHeight = engine.getWorldHeight();
+
+        Sheep sheep = engine.getSheep();
+        sheepPrevX = sheep.getPrevXPos();
+        sheepPrevY = sheep.getPrevYPos();
+        sheepX = sheep.getXPos();
+        sheepY = sheep.getYPos();
+        sheepLocationX = sheep.getLocationX();
+        sheepLocationY = sheep.getLocationY();
+        sheepWidth = sheep.getWidth();
+        sheepHeight = sheep.getHeight();
+        hunger = sheep.getHunger();
+        thirst = sheep.getThirst();
+        fatigue = sheep.getFatigue();
+
+        Flock flock = engine.getFlock();
+        int m = flock.size();
+        flockSize = m;
+        if (flockX.length < m) {
+            int capacity = grow(flockX.length, m);
+            flockPrevX = new float[capacity];
+            flockPrevY = new float[capacity];
+            flockX = new float[capacity];
+            flockY = new float[capacity];
+        }
+        for (int i = 0; i < m; i++) {
+            flockPrevX[i] = (float) flock.getPrevXPos(i);
+            flockPrevY[i] = (float) flock.getPrevYPos(i);
+            flockX[i] = (float) flock.getXPos(i);
+            flockY[i] = (float) flock.getYPos(i);
+        }
+
+        List<Wolf> wolves = engine.getWolves();
+        int n = wolves.size();
+        wolfCount = n;
+        if (wolfX.length < n) {
+            int capacity = grow(wolfX.length, n);
+            wolfPrevX = new double[capacity];
+            wolfPrevY = new double[capacity];
+            wolfX = new double[capacity];
+            wolfY = new double[capacity];
+            wolfLocationX = new int[capacity];
+            wolfLocationY = new int[capacity];
+            wolfDetectionRadius = new double[capacity];
+            wolfState = new Wolf.State[capacity];
+        }
+        for (int i = 0; i < n; i++) {
+            Wolf w = wolves.get(i);
+            wolfPrevX[i] = w.getPrevXPos();
+            wolfPrevY[i] = w.getPrevYPos();
+            wolfX[i] = w.getXPos();
+            wolfY[i] = w.getYPos();
+            wolfLocationX[i] = w.getLocationX();
+            wolfLocationY[i] = w.getLocationY();
+            wolfDetectionRadius[i] = w.getDetectionRadius();
+            wolfState[i] = w.getState();
+        }
+        Wolf nearest = engine.nearestWolfToSheep();
+        if (nearest == null) {
+            nearestWolfDistance = Double.MAX_VALUE;
+            nearestWolfDetectionRadius = 0;
+        } else {
+            nearestWolfDistance = Math.hypot(nearest.getLocationX() - sheepLocationX,
+                    nearest.getLocationY() - sheepLocationY);
+            nearestWolfDetectionRadius = nearest.getDetectionRadius();
+        }
+
+        // Kept from the last fill if the version still matches, else shared or rebuilt
+        long version = engine.getStaticLayerVersion();
+        if (staticShapes == null || staticLayerVersion != version) {
+            if (previous != null && previous.staticShapes != null && previous.staticLayerVersion == version) {
+                staticShapes = previous.staticShapes;
+            } else {
+                List<LocatableShape> shapes = new ArrayList<>(engine.getRestingSpots().size() + engine.getOtherObjects().size());
+                shapes.addAll(engine.getRestingSpots());
+                shapes.addAll(engine.getOtherObjects());
+                staticShapes = Collections.unmodifiableList(shapes);
+            }
+        }
+        staticLayerVersion = version;
+    }
+
+    /**
+     * Captures the engine's current state into a new frame that is never recycled. Must run
+     * on the thread that owns the engine.
+     *
+     * @param previous the last frame published for this engine, or null
+     */
+    public static WorldFrame capture(SimulationEngine engine, WorldFrame previous, long tickTimeNanos) {
+        WorldFrame frame = new WorldFrame();
+        frame.fill(engine, previous, tickTimeNanos);
+        return frame;
+    }
+
+    void retain() {
+        readers.incrementAndGet();
+    }
+
+    void release() {
+        readers.decrementAndGet();
+    }
+
+    boolean isHeld() {
+        return readers.get() != 0;
+    }
+
+    /**
+     * @return how far {@code nowNanos} is into the tick after this frame, clamped to [0, 1]
+     */
+    public double getInterpolationAlpha(long nowNanos) {
+        if (over) {
+            return 1.0;
+        }
+        double alpha = (nowNanos - tickTimeNanos) / (double) tickLengthNanos;
+        return Math.max(0.0, Math.min(1.0, alpha));
+    }
+
+    public int getSheepX(double alpha) {
+        return lerp(sheepPrevX, sheepX, alpha);
+    }
+
+    public int getSheepY(double alpha) {
+        return lerp(sheepPrevY, sheepY, alpha);
+    }
+
+    public int getFlockX(int i, double alpha) {
+        return lerp(flockPrevX[i], flockX[i], alpha);
+    }
+
+    public int getFlockY(int i, double alpha) {
+        return lerp(flockPrevY[i], flockY[i], alpha);
+    }
+
+    public int getWolfX(int i, double alpha) {
+        return lerp(wolfPrevX[i], wolfX[i], alpha);
+    }
+
+    public int getWolfY(int i, double alpha) {
+        return lerp(wolfPrevY[i], wolfY[i], alpha);
+    }
+
+    public int getWolfLocationX(int i) {
+        return wolfLocationX[i];
+    }
+
+    public int getWolfLocationY(int i) {
+        return wolfLocationY[i];
+    }
+
+    public double getWolfDetectionRadius(int i) {
+        return wolfDetectionRadius[i];
+    }
+
+    public Wolf.State getWolfState(int i) {
+        return wolfState[i];
+    }
+
+    private static int grow(int capacity, int needed) {
+        return Math.max(needed, capacity + (capacity >> 1));
+    }
+
+    private static int lerp(double prev, double cur, double alpha) {
+        return (int) Math.round(prev + (cur - prev) * alpha);
+    }
+}
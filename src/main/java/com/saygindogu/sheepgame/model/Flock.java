@@ -0,0 +1,569 @@
+package com.saygindogu.sheepgame.model;
+
+import com.saygindogu.sheepgame.SheepGame;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Structure-of-arrays store for the sheep that follow the player's sheep. Each follower
+ * steers by the boids rules, keeping apart from close neighbours, matching its
+ * neighbours' heading and drifting toward their centre, and is drawn toward the leader
+ * when it falls behind. Followers have no vitals; they are the same size as the leader
+ * and no faster than it.
+ *
+ * Neighbours come from a grid of {@link #CELL_SIZE} cells rebuilt at the end of every
+ * tick by a counting sort, with cells hashed into a table sized to the flock, so a tick
+ * is linear in the flock whatever the world size. Each follower's new velocity depends
+ * only on the state before the tick, so large flocks compute them across the fork/join
+ * pool and get bit-identical results on any number of threads.
+ */
+public class Flock {
+
+    public static final int WIDTH = 50;
+    public static final int HEIGHT = 40;
+    /** Followers within this distance are neighbours; also the grid's cell size. */
+    static final int CELL_SIZE = 80;
+    private static final double NEIGHBOUR_RADIUS = CELL_SIZE;
+    private static final double SEPARATION_RADIUS = 48;
+    private static final double SEPARATION_WEIGHT = 40;
+    private static final double ALIGNMENT_WEIGHT = 0.05;
+    private static final double COHESION_WEIGHT = 0.005;
+    // Followers within this distance of the leader are left to the flock rules
+    private static final double FOLLOW_RADIUS = 120;
+    private static final double LEADER_ACCELERATION = 0.6;
+    // Followers with this many neighbours feel no pull toward the leader, so a large flock
+    // moves by its edges and does not crush its middle
+    private static final int CROWD_SIZE = 8;
+    private static final double FRICTION = 0.9;
+
+    // Below this many followers forking costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 1024;
+    private static final int LEAF_SIZE = 256;
+
+    int size;
+    // Tick length relative to the 16 ms tick the rules were tuned for
+    double tickScale = 1.0;
+    double maxSpeed = 8.0;
+    int worldWidth = SheepGame.GAME_SIZE_X;
+    int worldHeight = SheepGame.GAME_SIZE_Y;
+    double[] xPos;
+    double[] yPos;
+    double[] prevXPos;
+    double[] prevYPos;
+    double[] vx;
+    double[] vy;
+    int[] xLocation;
+    int[] yLocation;
+
+    // Velocities computed for the tick, applied once every follower has its own
+    private double[] nextVx;
+    private double[] nextVy;
+    // The leader for the tick in progress, read by every worker
+    private double leaderX;
+    private double leaderY;
+    private double friction;
+
+    // Neighbour grid: followers grouped by bucket, each with its cell
+    private int[] bucketStart = new int[1];
+    private int[] members;
+    private int[] cellX;
+    private int[] cellY;
+    // Each member's cell, position and velocity in grid order, so steering scans memory in sequence
+    private int[] memberCellX;
+    private int[] memberCellY;
+    private double[] memberX;
+    private double[] memberY;
+    private double[] memberVx;
+    private double[] memberVy;
+    private int bucketMask;
+    private boolean gridStale;
+    // Followers a wolf has caught this tick
+    private boolean[] caught;
+    private int caughtCount;
+
+    public Flock() {
+        this(16);
+    }
+
+    public Flock(int initialCapacity) {
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void setTickScale(double tickScale) {
+        this.tickScale = tickScale;
+    }
+
+    /**
+     * Sets the fastest a follower moves per 16 ms; the leader's top speed keeps the flock
+     * together.
+     */
+    public void setMaxSpeed(double maxSpeed) {
+        this.maxSpeed = maxSpeed;
+    }
+
+    public void setWorldSize(int worldWidth, int worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+    }
+
+    public double getXPos(int i) {
+        return xPos[i];
+    }
+
+    public double getYPos(int i) {
+        return yPos[i];
+    }
+
+    public double getPrevXPos(int i) {
+        return prevXPos[i];
+    }
+
+    public double getPrevYPos(int i) {
+        return prevYPos[i];
+    }
+
+    public int getLocationX(int i) {
+        return xLocation[i];
+    }
+
+    public int getLocationY(int i) {
+        return yLocation[i];
+    }
+
+    /**
+     * Adds a standing follower with its top-left corner at ({@code x}, {@code y}), kept
+     * inside the world.
+     */
+    public void add(double x, double y) {
+        if (size == xPos.length) {
+            grow(size * 2);
+        }
+        int i = size++;
+        xPos[i] = x;
+        yPos[i] = y;
+        vx[i] = 0;
+        vy[i] = 0;
+        clampAndRound(i);
+        prevXPos[i] = xPos[i];
+        prevYPos[i] = yPos[i];
+        gridStale = true;
+    }
+
+    /**
+     * Steers and moves every follower by one tick, then rebuilds the neighbour grid.
+     */
+    public void tick(Sheep leader) {
+        if (size == 0) {
+            return;
+        }
+        leaderX = leader.getXPos();
+        leaderY = leader.getYPos();
+        friction = Math.pow(FRICTION, tickScale);
+        ensureGrid();
+        if (size < PARALLEL_THRESHOLD) {
+            steer(0, size);
+        } else {
+            new Steer(0, size).invoke();
+        }
+        System.arraycopy(xPos, 0, prevXPos, 0, size);
+        System.arraycopy(yPos, 0, prevYPos, 0, size);
+        for (int i = 0; i < size; i++) {
+            vx[i] = nextVx[i];
+            vy[i] = nextVy[i];
+            xPos[i] += vx[i] * tickScale;
+            yPos[i] += vy[i] * tickScale;
+            clampAndRound(i);
+        }
+        rebuildGrid();
+    }
+
+    /**
+     * Only reads the neighbour grid, so wolves can query it from several threads at once;
+     * the grid must be current, as it is after a tick or {@link #ensureGrid()}.
+     *
+     * @return the follower whose location is nearest to ({@code x}, {@code y}) and no
+     *         farther than {@code maxDistance}, or -1; ties go to the lower index
+     */
+    public int nearest(double x, double y, double maxDistance) {
+        if (size == 0) {
+            return -1;
+        }
+        if (gridStale) {
+            throw new IllegalStateException("Followers were added since the neighbour grid was built");
+        }
+        int best = -1;
+        double bestDistance = maxDistance;
+        int cx = cell(x);
+        int cy = cell(y);
+        int rings = (int) Math.ceil(maxDistance / CELL_SIZE) + 1;
+        for (int r = 0; r <= rings; r++) {
+            for (int gy = cy - r; gy <= cy + r; gy++) {
+                // Inner rows only have their two edge cells on this ring
+                int step = gy == cy - r || gy == cy + r ? 1 : Math.max(1, 2 * r);
+                for (int gx = cx - r; gx <= cx + r; gx += step) {
+                    int b = bucket(gx, gy);
+                    for (int k = bucketStart[b]; k < bucketStart[b + 1]; k++) {
+                        int j = members[k];
+                        if (cellX[j] != gx || cellY[j] != gy) {
+                            continue;
+                        }
+                        double dx = xLocation[j] - x;
+                        double dy = yLocation[j] - y;
+                        double d = Math.sqrt(dx * dx + dy * dy);
+                        if (d < bestDistance || (d == bestDistance && (best < 0 || j < best))) {
+                            best = j;
+                            bestDistance = d;
+                        }
+                    }
+                }
+            }
+            // Followers on later rings are at least r whole cells away
+            if (best >= 0 && bestDistance < r * CELL_SIZE) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Marks every follower whose bounds touch the rectangle, as a wolf there would catch
+     * them; {@link #removeCaught()} takes them out.
+     *
+     * @return how many were marked
+     */
+    public int catchInBounds(int minX, int minY, int maxX, int maxY) {
+        if (size == 0) {
+            return 0;
+        }
+        ensureGrid();
+        int marked = 0;
+        // The grid files followers by their top-left corner
+        int maxCx = cell(maxX);
+        int maxCy = cell(maxY);
+        for (int gx = cell(minX - WIDTH); gx <= maxCx; gx++) {
+            for (int gy = cell(minY - HEIGHT); gy <= maxCy; gy++) {
+                int b = bucket(gx, gy);
+                for (int k = bucketStart[b]; k < bucketStart[b + 1]; k++) {
+                    int j = members[k];
+                    if (cellX[j] != gx || cellY[j] != gy || caught[j]) {
+                        continue;
+                    }
+                    if (xLocation[j] <= maxX && xLocation[j] + WIDTH >= minX
+                            && yLocation[j] <= maxY && yLocation[j] + HEIGHT >= minY) {
+                        caught[j] = true;
+                        caughtCount++;
+                        marked++;
+                    }
+                }
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * Removes the caught followers, keeping the others in order.
+     */
+    public void removeCaught() {
+        if (caughtCount == 0) {
+            return;
+        }
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (caught[i]) {
+                caught[i] = false;
+                continue;
+            }
+            xPos[n] = xPos[i];
+            yPos[n] = yPos[i];
+            prevXPos[n] = prevXPos[i];
+            prevYPos[n] = prevYPos[i];
+            vx[n] = vx[i];
+            vy[n] = vy[i];
+            xLocation[n] = xLocation[i];
+            yLocation[n] = yLocation[i];
+            n++;
+        }
+        size = n;
+        caughtCount = 0;
+        rebuildGrid();
+    }
+
+    /**
+     * Makes this flock an exact copy of {@code other}.
+     */
+    public void copyFrom(Flock other) {
+        int n = other.size;
+        if (n > xPos.length) {
+            grow(n);
+        }
+        size = n;
+        tickScale = other.tickScale;
+        maxSpeed = other.maxSpeed;
+        worldWidth = other.worldWidth;
+        worldHeight = other.worldHeight;
+        System.arraycopy(other.xPos, 0, xPos, 0, n);
+        System.arraycopy(other.yPos, 0, yPos, 0, n);
+        System.arraycopy(other.prevXPos, 0, prevXPos, 0, n);
+        System.arraycopy(other.prevYPos, 0, prevYPos, 0, n);
+        System.arraycopy(other.vx, 0, vx, 0, n);
+        System.arraycopy(other.vy, 0, vy, 0, n);
+        System.arraycopy(other.xLocation, 0, xLocation, 0, n);
+        System.arraycopy(other.yLocation, 0, yLocation, 0, n);
+        rebuildGrid();
+    }
+
+    /**
+     * Writes every follower's position and velocity.
+     */
+    public void writeState(ByteBuffer out) {
+        out.putInt(size);
+        for (int i = 0; i < size; i++) {
+            out.putDouble(xPos[i]);
+            out.putDouble(yPos[i]);
+            out.putDouble(prevXPos[i]);
+            out.putDouble(prevYPos[i]);
+            out.putDouble(vx[i]);
+            out.putDouble(vy[i]);
+        }
+    }
+
+    /**
+     * Replaces the flock with state written by {@link #writeState(ByteBuffer)}.
+     */
+    public void readState(ByteBuffer in) {
+        int n = in.getInt();
+        if (n > xPos.length) {
+            grow(n);
+        }
+        size = n;
+        for (int i = 0; i < n; i++) {
+            xPos[i] = in.getDouble();
+            yPos[i] = in.getDouble();
+            prevXPos[i] = in.getDouble();
+            prevYPos[i] = in.getDouble();
+            vx[i] = in.getDouble();
+            vy[i] = in.getDouble();
+            xLocation[i] = (int) Math.round(xPos[i]);
+            yLocation[i] = (int) Math.round(yPos[i]);
+        }
+        rebuildGrid();
+    }
+
+    private void steer(int from, int to) {
+        for (int i = from; i < to; i++) {
+            steer(i);
+        }
+    }
+
+    // Reads only state from before the tick and writes only follower i's next velocity
+    private void steer(int i) {
+        double x = xPos[i];
+        double y = yPos[i];
+        double sepX = 0;
+        double sepY = 0;
+        double sumVx = 0;
+        double sumVy = 0;
+        double sumX = 0;
+        double sumY = 0;
+        int neighbours = 0;
+        int cx = cellX[i];
+        int cy = cellY[i];
+        for (int gy = cy - 1; gy <= cy + 1; gy++) {
+            for (int gx = cx - 1; gx <= cx + 1; gx++) {
+                int b = bucket(gx, gy);
+                for (int k = bucketStart[b]; k < bucketStart[b + 1]; k++) {
+                    if (memberCellX[k] != gx || memberCellY[k] != gy || members[k] == i) {
+                        continue;
+                    }
+                    double dx = x - memberX[k];
+                    double dy = y - memberY[k];
+                    double d2 = dx * dx + dy * dy;
+                    if (d2 >= NEIGHBOUR_RADIUS * NEIGHBOUR_RADIUS) {
+                        continue;
+                    }
+                    neighbours++;
+                    sumVx += memberVx[k];
+                    sumVy += memberVy[k];
+                    sumX += memberX[k];
+                    sumY += memberY[k];
+                    if (d2 == 0) {
+                        // Stacked followers part along x, the lower index to the left
+                        sepX += members[k] < i ? 1 / SEPARATION_RADIUS : -1 / SEPARATION_RADIUS;
+                    } else if (d2 < SEPARATION_RADIUS * SEPARATION_RADIUS) {
+                        sepX += dx / d2;
+                        sepY += dy / d2;
+                    }
+                }
+            }
+        }
+
+        double ax = 0;
+        double ay = 0;
+        if (neighbours > 0) {
+            ax += SEPARATION_WEIGHT * sepX
+                    + ALIGNMENT_WEIGHT * (sumVx / neighbours - vx[i])
+                    + COHESION_WEIGHT * (sumX / neighbours - x);
+            ay += SEPARATION_WEIGHT * sepY
+                    + ALIGNMENT_WEIGHT * (sumVy / neighbours - vy[i])
+                    + COHESION_WEIGHT * (sumY / neighbours - y);
+        }
+        double ldx = leaderX - x;
+        double ldy = leaderY - y;
+        double ld = Math.sqrt(ldx * ldx + ldy * ldy);
+        if (ld > FOLLOW_RADIUS && neighbours < CROWD_SIZE) {
+            double pull = LEADER_ACCELERATION * (CROWD_SIZE - neighbours) / CROWD_SIZE;
+            ax += ldx / ld * pull;
+            ay += ldy / ld * pull;
+        } else if (ld < SEPARATION_RADIUS && ld > 0) {
+            ax -= SEPARATION_WEIGHT * ldx / (ld * ld);
+            ay -= SEPARATION_WEIGHT * ldy / (ld * ld);
+        }
+
+        double nvx = (vx[i] + ax * tickScale) * friction;
+        double nvy = (vy[i] + ay * tickScale) * friction;
+        double speed = Math.sqrt(nvx * nvx + nvy * nvy);
+        if (speed > maxSpeed) {
+            nvx *= maxSpeed / speed;
+            nvy *= maxSpeed / speed;
+        }
+        nextVx[i] = nvx;
+        nextVy[i] = nvy;
+    }
+
+    private void clampAndRound(int i) {
+        if (xPos[i] < 0) xPos[i] = 0;
+        if (yPos[i] < 0) yPos[i] = 0;
+        if (xPos[i] > worldWidth - WIDTH) xPos[i] = worldWidth - WIDTH;
+        if (yPos[i] > worldHeight - HEIGHT) yPos[i] = worldHeight - HEIGHT;
+
+        xLocation[i] = (int) Math.round(xPos[i]);
+        yLocation[i] = (int) Math.round(yPos[i]);
+    }
+
+    /**
+     * Rebuilds the neighbour grid if followers were added since it was last built.
+     */
+    void ensureGrid() {
+        if (gridStale) {
+            rebuildGrid();
+        }
+    }
+
+    // Counting sort by bucket of each follower's cell; followers keep index order within a bucket
+    private void rebuildGrid() {
+        gridStale = false;
+        int buckets = Integer.highestOneBit(Math.max(16, size * 2 - 1)) << 1;
+        if (bucketStart.length != buckets + 1) {
+            bucketStart = new int[buckets + 1];
+            bucketMask = buckets - 1;
+        } else {
+            Arrays.fill(bucketStart, 0);
+        }
+        for (int i = 0; i < size; i++) {
+            cellX[i] = cell(xLocation[i]);
+            cellY[i] = cell(yLocation[i]);
+            bucketStart[bucket(cellX[i], cellY[i]) + 1]++;
+        }
+        for (int b = 0; b < buckets; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        for (int i = 0; i < size; i++) {
+            int b = bucket(cellX[i], cellY[i]);
+            // bucketStart[b] is used as the fill cursor, then shifted back below
+            int k = bucketStart[b]++;
+            members[k] = i;
+            memberCellX[k] = cellX[i];
+            memberCellY[k] = cellY[i];
+            memberX[k] = xPos[i];
+            memberY[k] = yPos[i];
+            memberVx[k] = vx[i];
+            memberVy[k] = vy[i];
+        }
+        for (int b = buckets; b > 0; b--) {
+            bucketStart[b] = bucketStart[b - 1];
+        }
+        bucketStart[0] = 0;
+    }
+
+    private static int cell(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private int bucket(int cx, int cy) {
+        int h = cx * 0x9E3779B1 ^ cy * 0x85EBCA6B;
+        return (h ^ (h >>> 15)) & bucketMask;
+    }
+
+    private void allocate(int capacity) {
+        xPos = new double[capacity];
+        yPos = new double[capacity];
+        prevXPos = new double[capacity];
+        prevYPos = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        xLocation = new int[capacity];
+        yLocation = new int[capacity];
+        nextVx = new double[capacity];
+        nextVy = new double[capacity];
+        members = new int[capacity];
+        cellX = new int[capacity];
+        memberCellX = new int[capacity];
+        memberCellY = new int[capacity];
+        memberX = new double[capacity];
+        memberY = new double[capacity];
+        memberVx = new double[capacity];
+        memberVy = new double[capacity];
+        cellY = new int[capacity];
+        caught = new boolean[capacity];
+    }
+
+    private void grow(int capacity) {
+        xPos = Arrays.copyOf(xPos, capacity);
+        yPos = Arrays.copyOf(yPos, capacity);
+        prevXPos = Arrays.copyOf(prevXPos, capacity);
+        prevYPos = Arrays.copyOf(prevYPos, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        xLocation = Arrays.copyOf(xLocation, capacity);
+        yLocation = Arrays.copyOf(yLocation, capacity);
+        nextVx = new double[capacity];
+        nextVy = new double[capacity];
+        members = new int[capacity];
+        cellX = Arrays.copyOf(cellX, capacity);
+        memberCellX = new int[capacity];
+        memberCellY = new int[capacity];
+        memberX = new double[capacity];
+        memberY = new double[capacity];
+        memberVx = new double[capacity];
+        memberVy = new double[capacity];
+        cellY = Arrays.copyOf(cellY, capacity);
+        caught = Arrays.copyOf(caught, capacity);
+    }
+
+    // Splits the followers in halves down to leaves of LEAF_SIZE
+    private final class Steer extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        Steer(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                steer(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Steer(from, mid), new Steer(mid, to));
+        }
+    }
+}
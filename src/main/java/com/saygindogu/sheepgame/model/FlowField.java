@@ -0,0 +1,295 @@
+package com.saygindogu.sheepgame.model;
+
+import java.util.Arrays;
+
+/**
+ * Shared pursuit field over a grid of cells covering the game field. An integration pass
+ * from the target's cell gives every cell its path cost around blocked cells, and each
+ * cell then points at its cheapest neighbour, so any number of chasers find their way by
+ * looking up the cell they stand in.
+ *
+ * The field is only rebuilt when the target moves to another cell or the blocked cells
+ * change. Where a cell's path cost equals its free-space distance to the target no
+ * obstacle is in the way, and {@link #isDirect} tells the chaser to keep heading straight
+ * at the target as it always has. With nothing blocked that holds everywhere, so the
+ * field costs nothing and changes nothing until obstacles are added; its arrays are not
+ * even allocated until then, so covering a large streamed world is free.
+ */
+public class FlowField {
+
+    // Integration costs: straight and diagonal steps between neighbouring cells
+    private static final int STRAIGHT = 10;
+    private static final int DIAGONAL = 14;
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int[] NEIGHBOUR_DX = { 1, -1, 0, 0, 1, 1, -1, -1 };
+    private static final int[] NEIGHBOUR_DY = { 0, 0, 1, -1, 1, -1, 1, -1 };
+
+    private final int cellSize;
+    private final int cols;
+    private final int rows;
+    // Null until the first cell is blocked
+    private boolean[] blocked;
+    private int blockedCount;
+    private int[] cost;
+    private float[] dirX;
+    private float[] dirY;
+    private boolean[] direct;
+    // Binary min-heap of (cost << 32 | cell); a cell is pushed at most once per neighbour
+    private long[] heap;
+    private int targetCell = -1;
+    private boolean dirty = true;
+
+    /**
+     * @param width    width of the area covered, in pixels
+     * @param height   height of the area covered, in pixels
+     * @param cellSize side of one cell, in pixels
+     */
+    public FlowField(int width, int height, int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        cols = (width + cellSize - 1) / cellSize;
+        rows = (height + cellSize - 1) / cellSize;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    public boolean hasObstacles() {
+        return blockedCount > 0;
+    }
+
+    /**
+     * Marks every cell the given rectangle touches as blocked or free.
+     */
+    public void setBlocked(int x, int y, int width, int height, boolean isBlocked) {
+        if (blocked == null) {
+            if (!isBlocked) {
+                return;
+            }
+            allocate();
+        }
+        int c0 = clamp(Math.floorDiv(x, cellSize), cols);
+        int r0 = clamp(Math.floorDiv(y, cellSize), rows);
+        int c1 = clamp(Math.floorDiv(x + width - 1, cellSize), cols);
+        int r1 = clamp(Math.floorDiv(y + height - 1, cellSize), rows);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * cols + c;
+                if (blocked[cell] != isBlocked) {
+                    blocked[cell] = isBlocked;
+                    blockedCount += isBlocked ? 1 : -1;
+                    dirty = true;
+                }
+            }
+        }
+    }
+
+    public boolean isBlocked(double x, double y) {
+        return blockedCount > 0 && blocked[cellAt(x, y)];
+    }
+
+    /**
+     * Unblocks every cell.
+     */
+    public void clearObstacles() {
+        if (blockedCount > 0) {
+            Arrays.fill(blocked, false);
+            blockedCount = 0;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Makes this field's blocked cells the same as {@code other}'s; the two must cover the
+     * same grid.
+     */
+    public void copyObstaclesFrom(FlowField other) {
+        if (other.rows != rows || other.cols != cols) {
+            throw new IllegalArgumentException("Flow fields cover different grids");
+        }
+        if (other.blockedCount == 0) {
+            clearObstacles();
+        } else {
+            if (blocked == null) {
+                allocate();
+            }
+            System.arraycopy(other.blocked, 0, blocked, 0, blocked.length);
+            blockedCount = other.blockedCount;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Points the field at the given position, rebuilding it if that is in another cell than
+     * last time or the obstacles changed. Does nothing while no cell is blocked.
+     */
+    public void update(double targetX, double targetY) {
+        if (blockedCount == 0) {
+            return;
+        }
+        int target = cellAt(targetX, targetY);
+        if (target == targetCell && !dirty) {
+            return;
+        }
+        targetCell = target;
+        dirty = false;
+        integrate(target);
+        buildDirections(target);
+    }
+
+    /**
+     * @return true if a chaser at this position can head straight for the target: no
+     *         obstacle is in the way, there is no path at all, or nothing is blocked
+     */
+    public boolean isDirect(double x, double y) {
+        return blockedCount == 0 || direct[cellAt(x, y)];
+    }
+
+    /**
+     * @return x component of the unit step toward the target from this position's cell
+     */
+    public float getDirectionX(double x, double y) {
+        return dirX[cellAt(x, y)];
+    }
+
+    /**
+     * @return y component of the unit step toward the target from this position's cell
+     */
+    public float getDirectionY(double x, double y) {
+        return dirY[cellAt(x, y)];
+    }
+
+    private void allocate() {
+        int cells = cols * rows;
+        blocked = new boolean[cells];
+        cost = new int[cells];
+        dirX = new float[cells];
+        dirY = new float[cells];
+        direct = new boolean[cells];
+        heap = new long[cells * NEIGHBOUR_DX.length + 1];
+    }
+
+    private void integrate(int target) {
+        Arrays.fill(cost, UNREACHABLE);
+        if (blocked[target]) {
+            return;
+        }
+        cost[target] = 0;
+        int heapSize = 0;
+        heap[heapSize++] = target;
+        while (heapSize > 0) {
+            long top = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heapSize);
+            int cell = (int) top;
+            int c = (int) (top >>> 32);
+            if (c > cost[cell]) {
+                // Stale entry; the cell was reached more cheaply since
+                continue;
+            }
+            int col = cell % cols;
+            int row = cell / cols;
+            for (int k = 0; k < NEIGHBOUR_DX.length; k++) {
+                int nc = col + NEIGHBOUR_DX[k];
+                int nr = row + NEIGHBOUR_DY[k];
+                if (!canStep(col, row, nc, nr)) {
+                    continue;
+                }
+                int next = nr * cols + nc;
+                int nextCost = c + (k < 4 ? STRAIGHT : DIAGONAL);
+                if (nextCost < cost[next]) {
+                    cost[next] = nextCost;
+                    heap[heapSize] = ((long) nextCost << 32) | next;
+                    siftUp(heapSize++);
+                }
+            }
+        }
+    }
+
+    private void buildDirections(int target) {
+        int tc = target % cols;
+        int tr = target / cols;
+        for (int cell = 0; cell < cost.length; cell++) {
+            int col = cell % cols;
+            int row = cell / cols;
+            int dc = Math.abs(col - tc);
+            int dr = Math.abs(row - tr);
+            int freeCost = STRAIGHT * Math.max(dc, dr) + (DIAGONAL - STRAIGHT) * Math.min(dc, dr);
+            direct[cell] = cost[cell] == UNREACHABLE || cost[cell] == freeCost;
+            dirX[cell] = 0;
+            dirY[cell] = 0;
+            if (direct[cell]) {
+                continue;
+            }
+            int best = cost[cell];
+            for (int k = 0; k < NEIGHBOUR_DX.length; k++) {
+                int nc = col + NEIGHBOUR_DX[k];
+                int nr = row + NEIGHBOUR_DY[k];
+                if (canStep(col, row, nc, nr) && cost[nr * cols + nc] < best) {
+                    best = cost[nr * cols + nc];
+                    float len = k < 4 ? 1f : (float) Math.sqrt(0.5);
+                    dirX[cell] = NEIGHBOUR_DX[k] * len;
+                    dirY[cell] = NEIGHBOUR_DY[k] * len;
+                }
+            }
+        }
+    }
+
+    // Diagonal steps may not cut the corner of a blocked cell
+    private boolean canStep(int col, int row, int nc, int nr) {
+        if (nc < 0 || nr < 0 || nc >= cols || nr >= rows || blocked[nr * cols + nc]) {
+            return false;
+        }
+        return nc == col || nr == row || (!blocked[row * cols + nc] && !blocked[nr * cols + col]);
+    }
+
+    private int cellAt(double x, double y) {
+        int c = clamp((int) Math.floor(x / cellSize), cols);
+        int r = clamp((int) Math.floor(y / cellSize), rows);
+        return r * cols + c;
+    }
+
+    private static int clamp(int v, int n) {
+        return v < 0 ? 0 : (v >= n ? n - 1 : v);
+    }
+
+    private void siftUp(int i) {
+        long e = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= e) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = e;
+    }
+
+    private void siftDown(int size) {
+        if (size == 0) {
+            return;
+        }
+        long e = heap[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= e) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = e;
+    }
+}
@@ -7,7 +7,7 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 public class Grass extends LocatableShape {
@@ -23,6 +23,9 @@ public class Grass extends LocatableShape {
 	private int locationX;
 	@Getter
 	private int locationY;
+	// Bound on first draw and kept, so drawing a cached sprite allocates nothing and
+	// resources that are only simulated carry no painter
+	private SpriteCache.Painter painter;
 
 	public Grass( int capacity, int x, int y, int width , int height){
 		this.capacity = capacity;
@@ -46,37 +49,82 @@ public class Grass extends LocatableShape {
 		return false;
 	}
 
+	/**
+	 * @return whether {@link #getEaten()} would succeed, without eating
+	 */
+	public boolean canBeEaten(){
+		return capacity > nutritiousness;
+	}
+
+	/**
+	 * Writes the patch's place, size and what is left of it.
+	 */
+	public void writeState( ByteBuffer out){
+		out.putInt( locationX);
+		out.putInt( locationY);
+		out.putInt( width);
+		out.putInt( height);
+		out.putInt( capacity);
+		out.putInt( nutritiousness);
+	}
+
+	/**
+	 * @return a patch restored from {@link #writeState(ByteBuffer)}
+	 */
+	public static Grass readState( ByteBuffer in){
+		Grass g = new Grass( 0, in.getInt(), in.getInt(), in.getInt(), in.getInt());
+		g.capacity = in.getInt();
+		g.nutritiousness = in.getInt();
+		return g;
+	}
+
 	@Override
 	public void draw(Graphics g) {
-		Graphics2D g2 = (Graphics2D) g.create();
-		g2.setRenderingHint( RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		long key = SpriteCache.key( SpriteCache.TYPE_GRASS, 0, width, height, locationX * 31 + locationY);
+		if( painter == null ){
+			painter = this::paint;
+		}
+		SpriteCache.shared().draw( g, key, locationX, locationY, width, height, painter);
+	}
 
+	private void paint(Graphics2D g2, int x, int y) {
 		// Draw a dirt/ground patch
-		g2.setColor( new Color( 120, 80, 40));
-		g2.fillOval( locationX, locationY + height - height / 4, width, height / 4);
+		g2.setColor( Palette.DIRT_COLOR);
+		g2.fillOval( x, y + height - height / 4, width, height / 4);
 
 		// Draw grass blades
-		g2.setStroke( new BasicStroke( 2));
+		g2.setStroke( Palette.BLADE_STROKE);
 		int bladeCount = Math.max( 5, width / 6);
 		Random rand = new Random( locationX * 31 + locationY);
 
 		for( int i = 0; i < bladeCount; i++){
-			int baseX = locationX + rand.nextInt( width);
-			int baseY = locationY + height - height / 6;
+			int baseX = x + rand.nextInt( width);
+			int baseY = y + height - height / 6;
 			int tipX = baseX + rand.nextInt( 11) - 5;
-			int tipY = locationY + rand.nextInt( height / 3);
+			int tipY = y + rand.nextInt( height / 3);
 			int midX = (baseX + tipX) / 2 + rand.nextInt( 7) - 3;
 			int midY = (baseY + tipY) / 2;
 
 			// Vary the green shade per blade
-			int green = 140 + rand.nextInt( 80);
-			g2.setColor( new Color( 20, green, 20));
+			g2.setColor( Palette.BLADE_COLORS[ rand.nextInt( Palette.BLADE_COLORS.length)]);
 
 			g2.drawLine( baseX, baseY, midX, midY);
 			g2.drawLine( midX, midY, tipX, tipY);
 		}
+	}
 
-		g2.dispose();
+	// Paint constants, held apart so that simulating grass never initialises AWT
+	private static final class Palette {
+		static final Color DIRT_COLOR = new Color( 120, 80, 40);
+		static final BasicStroke BLADE_STROKE = new BasicStroke( 2);
+		// One shade per green level from 140 to 219
+		static final Color[] BLADE_COLORS = new Color[ 80];
+
+		static {
+			for( int i = 0; i < BLADE_COLORS.length; i++){
+				BLADE_COLORS[i] = new Color( 20, 140 + i, 20);
+			}
+		}
 	}
 
 }
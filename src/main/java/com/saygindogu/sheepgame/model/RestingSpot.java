@@ -1,28 +1,26 @@
 package com.saygindogu.sheepgame.model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 @Getter
 public class RestingSpot extends LocatableShape {
 
-    // Color palette constants
-    private static final Color EARTH_COLOR = new Color(180, 150, 100);
-    private static final Color SHADOW_COLOR = new Color(60, 40, 20, 60);
-    private static final Color PEBBLE_COLOR = new Color(140, 110, 70);
-    private static final Color OUTLINE_COLOR = new Color(120, 90, 50);
-
     private final double restPower;
     private final int locationX;
     private final int locationY;
     private final int width;
     private final int height;
+    // Bound once so drawing a cached sprite allocates nothing
+    @Getter(AccessLevel.NONE)
+    private final SpriteCache.Painter painter = this::paint;
 
     public RestingSpot(int x, int y, int width, int height, int difficultyLevel) {
         this.locationX = x;
@@ -32,36 +30,60 @@ public class RestingSpot extends LocatableShape {
         this.restPower = Math.max(0.5, 2.0 / (1.0 + (difficultyLevel - 1) * 0.08));
     }
 
+    public void writeState(ByteBuffer out) {
+        out.putInt(locationX);
+        out.putInt(locationY);
+        out.putInt(width);
+        out.putInt(height);
+    }
+
+    /**
+     * @return a spot restored from {@link #writeState(ByteBuffer)}; its rest power follows
+     *         from the difficulty, as for a new spot
+     */
+    public static RestingSpot readState(ByteBuffer in, int difficultyLevel) {
+        return new RestingSpot(in.getInt(), in.getInt(), in.getInt(), in.getInt(), difficultyLevel);
+    }
+
     @Override
     public void draw(Graphics g) {
-        Graphics2D g2 = (Graphics2D) g.create();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        long key = SpriteCache.key(SpriteCache.TYPE_RESTING_SPOT, 0, width, height, locationX * 31 + locationY);
+        SpriteCache.shared().draw(g, key, locationX, locationY, width, height, painter);
+    }
 
+    private void paint(Graphics2D g2, int x, int y) {
         // Fill earth/sand oval
-        g2.setColor(EARTH_COLOR);
-        g2.fillOval(locationX, locationY, width, height);
+        g2.setColor(Palette.EARTH_COLOR);
+        g2.fillOval(x, y, width, height);
 
         // Semi-transparent shadow overlay
-        g2.setColor(SHADOW_COLOR);
+        g2.setColor(Palette.SHADOW_COLOR);
         int inset = width / 6;
-        g2.fillOval(locationX + inset, locationY + inset, width - 2 * inset, height - 2 * inset);
+        g2.fillOval(x + inset, y + inset, width - 2 * inset, height - 2 * inset);
 
         // Pebble texture (3-5 small dots)
-        g2.setColor(PEBBLE_COLOR);
+        g2.setColor(Palette.PEBBLE_COLOR);
         Random rand = new Random(locationX * 31 + locationY);
         int pebbleCount = 3 + rand.nextInt(3);
         for (int i = 0; i < pebbleCount; i++) {
-            int px = locationX + width / 5 + rand.nextInt(width * 3 / 5);
-            int py = locationY + height / 5 + rand.nextInt(height * 3 / 5);
+            int px = x + width / 5 + rand.nextInt(width * 3 / 5);
+            int py = y + height / 5 + rand.nextInt(height * 3 / 5);
             int pSize = 2 + rand.nextInt(4);
             g2.fillOval(px, py, pSize, pSize);
         }
 
         // Thin outline
-        g2.setColor(OUTLINE_COLOR);
-        g2.setStroke(new BasicStroke(1.5f));
-        g2.drawOval(locationX, locationY, width, height);
+        g2.setColor(Palette.OUTLINE_COLOR);
+        g2.setStroke(Palette.OUTLINE_STROKE);
+        g2.drawOval(x, y, width, height);
+    }
 
-        g2.dispose();
+    // Paint constants, held apart so that simulating rest spots never initialises AWT
+    private static final class Palette {
+        static final Color EARTH_COLOR = new Color(180, 150, 100);
+        static final Color SHADOW_COLOR = new Color(60, 40, 20, 60);
+        static final Color PEBBLE_COLOR = new Color(140, 110, 70);
+        static final Color OUTLINE_COLOR = new Color(120, 90, 50);
+        static final BasicStroke OUTLINE_STROKE = new BasicStroke(1.5f);
     }
 }
@@ -1,15 +1,14 @@
 package com.saygindogu.sheepgame.model;
 
 import com.saygindogu.sheepgame.SheepGame;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-
-import javax.swing.Timer;
+import java.nio.ByteBuffer;
 
 import static java.lang.Integer.max;
 
@@ -21,11 +20,22 @@ public class Sheep extends LocatableShape implements Moveable {
     public static final int MAX_THIRST = 50;
     public static final int MAX_FATIGUE = 100;
 
+    // Bits of the steering input mask, one per held direction
+    public static final int INPUT_UP = 1;
+    public static final int INPUT_DOWN = 2;
+    public static final int INPUT_LEFT = 4;
+    public static final int INPUT_RIGHT = 8;
+
     private static final double BASE_ACCELERATION = 1.0;
     private static final double FRICTION = 0.85;
     private static final double BASE_MAX_SPEED = 8.0;
     private static final double BASE_FATIGUE_RATE = 0.08;
     private static final double FATIGUE_RECOVERY_IDLE = 0.03;
+    private static final int DEFAULT_WIDTH = 50;
+    private static final int DEFAULT_HEIGHT = 40;
+    // Bound once for the size every sheep has, so drawing one allocates nothing
+    private static final SpriteCache.Painter DEFAULT_PAINTER =
+            (g, x, y) -> paint(g, x, y, DEFAULT_WIDTH, DEFAULT_HEIGHT);
 
     //Properties
     @Getter
@@ -43,7 +53,6 @@ public class Sheep extends LocatableShape implements Moveable {
     private int height;
     private int width;
     private boolean isAlive;
-    private Timer timer;
     private double vx;
     private double vy;
     private double acceleration;
@@ -53,6 +62,17 @@ public class Sheep extends LocatableShape implements Moveable {
     private boolean movingLeft;
     private boolean movingRight;
     private boolean onRestSpot;
+    // Position before the last tick, for render interpolation
+    private double prevXPos;
+    private double prevYPos;
+    // Tick length relative to the 16 ms the movement constants were tuned for
+    private double tickScale = 1.0;
+    private double tickFriction = FRICTION;
+    // Size of the world the sheep is kept inside
+    @Setter(AccessLevel.NONE)
+    private int worldWidth = SheepGame.GAME_SIZE_X;
+    @Setter(AccessLevel.NONE)
+    private int worldHeight = SheepGame.GAME_SIZE_Y;
 
     //Constructor
     public Sheep(int hardness) {
@@ -64,8 +84,8 @@ public class Sheep extends LocatableShape implements Moveable {
         xLocation = 0;
         yLocation = 0;
         speed = 10;
-        height = 40;
-        width = 50;
+        height = DEFAULT_HEIGHT;
+        width = DEFAULT_WIDTH;
         isAlive = true;
         vx = 0;
         vy = 0;
@@ -74,16 +94,6 @@ public class Sheep extends LocatableShape implements Moveable {
         acceleration = BASE_ACCELERATION * scale;
         maxSpeed = BASE_MAX_SPEED * scale;
         fatigueScale = 1.0 + (hardness - 1) * 0.06;
-
-        timer = new Timer(1000, e -> {
-            hunger++;
-            thirst++;
-
-            if (hunger >= MAX_HUNGER || thirst >= MAX_THIRST) {
-                die();
-            }
-        });
-        timer.start();
     }
 
     public boolean isAlive() {
@@ -92,14 +102,27 @@ public class Sheep extends LocatableShape implements Moveable {
 
     @Override
     public void draw(Graphics g) {
-        Graphics2D g2 = (Graphics2D) g.create();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        draw(g, xLocation, yLocation, width, height);
+    }
 
-        int cx = xLocation + width / 2;
-        int cy = yLocation + height / 2;
+    /**
+     * Draws a sheep of the given size with its top-left corner at (x, y), for renderers
+     * that work from copied positions rather than the live sheep.
+     */
+    public static void draw(Graphics g, int x, int y, int width, int height) {
+        long key = SpriteCache.key(SpriteCache.TYPE_SHEEP, 0, width, height, 0);
+        SpriteCache.Painter painter = width == DEFAULT_WIDTH && height == DEFAULT_HEIGHT
+                ? DEFAULT_PAINTER
+                : (g2, px, py) -> paint(g2, px, py, width, height);
+        SpriteCache.shared().draw(g, key, x, y, width, height, painter);
+    }
+
+    private static void paint(Graphics2D g2, int x, int y, int width, int height) {
+        int cx = x + width / 2;
+        int cy = y + height / 2;
 
         // Legs (dark gray)
-        g2.setColor(new Color(80, 80, 80));
+        g2.setColor(Palette.LEG_COLOR);
         int legW = width / 6;
         int legH = height / 3;
         g2.fillRoundRect(cx - width / 3, cy + height / 4, legW, legH, 2, 2);
@@ -112,7 +135,7 @@ public class Sheep extends LocatableShape implements Moveable {
         g2.fillOval(cx - width / 2, cy - height / 4, width, height / 2);
 
         // Wool puff texture (light gray circles on body)
-        g2.setColor(new Color(220, 220, 220));
+        g2.setColor(Palette.PUFF_COLOR);
         int puff = width / 5;
         g2.fillOval(cx - width / 3, cy - height / 5, puff, puff);
         g2.fillOval(cx - width / 8, cy - height / 4, puff, puff);
@@ -122,11 +145,11 @@ public class Sheep extends LocatableShape implements Moveable {
         g2.fillOval(cx + width / 5, cy, puff, puff);
 
         // Body outline
-        g2.setColor(new Color(180, 180, 180));
+        g2.setColor(Palette.OUTLINE_COLOR);
         g2.drawOval(cx - width / 2, cy - height / 4, width, height / 2);
 
         // Head (black oval, to the right)
-        g2.setColor(new Color(50, 50, 50));
+        g2.setColor(Palette.HEAD_COLOR);
         int headW = width / 3;
         int headH = height / 3;
         g2.fillOval(cx + width / 3, cy - height / 4, headW, headH);
@@ -143,8 +166,6 @@ public class Sheep extends LocatableShape implements Moveable {
         g2.setColor(Color.BLACK);
         int pupilSize = Math.max(1, eyeSize / 2);
         g2.fillOval(cx + width / 3 + headW / 2 + pupilSize / 2, cy - height / 6, pupilSize, pupilSize);
-
-        g2.dispose();
     }
 
     @Override
@@ -182,16 +203,133 @@ public class Sheep extends LocatableShape implements Moveable {
     public void stopLeft() { movingLeft = false; }
     public void stopRight() { movingRight = false; }
 
+    /**
+     * @return the held directions as {@code INPUT_*} bits
+     */
+    public int getInputMask() {
+        return (movingUp ? INPUT_UP : 0) | (movingDown ? INPUT_DOWN : 0)
+                | (movingLeft ? INPUT_LEFT : 0) | (movingRight ? INPUT_RIGHT : 0);
+    }
+
+    /**
+     * Holds exactly the directions set in {@code mask} and releases the others.
+     */
+    public void setInputMask(int mask) {
+        movingUp = (mask & INPUT_UP) != 0;
+        movingDown = (mask & INPUT_DOWN) != 0;
+        movingLeft = (mask & INPUT_LEFT) != 0;
+        movingRight = (mask & INPUT_RIGHT) != 0;
+    }
+
+    /**
+     * Writes everything a tick can change. Size, speed limits and tick scale follow from
+     * the difficulty and tick length, so they are not included.
+     */
+    public void writeState(ByteBuffer out) {
+        out.putInt(hunger);
+        out.putInt(thirst);
+        out.putDouble(fatigue);
+        out.putDouble(xPos);
+        out.putDouble(yPos);
+        out.putDouble(prevXPos);
+        out.putDouble(prevYPos);
+        out.putDouble(vx);
+        out.putDouble(vy);
+        out.put((byte) getInputMask());
+        out.put((byte) ((isAlive ? 1 : 0) | (onRestSpot ? 2 : 0)));
+    }
+
+    /**
+     * Copies everything a tick can change from {@code other}, a sheep of the same difficulty.
+     */
+    public void copyFrom(Sheep other) {
+        hunger = other.hunger;
+        thirst = other.thirst;
+        fatigue = other.fatigue;
+        xPos = other.xPos;
+        yPos = other.yPos;
+        prevXPos = other.prevXPos;
+        prevYPos = other.prevYPos;
+        xLocation = other.xLocation;
+        yLocation = other.yLocation;
+        vx = other.vx;
+        vy = other.vy;
+        movingUp = other.movingUp;
+        movingDown = other.movingDown;
+        movingLeft = other.movingLeft;
+        movingRight = other.movingRight;
+        isAlive = other.isAlive;
+        onRestSpot = other.onRestSpot;
+    }
+
+    /**
+     * Restores state written by {@link #writeState(ByteBuffer)} on a sheep of the same
+     * difficulty.
+     */
+    public void readState(ByteBuffer in) {
+        hunger = in.getInt();
+        thirst = in.getInt();
+        fatigue = in.getDouble();
+        xPos = in.getDouble();
+        yPos = in.getDouble();
+        prevXPos = in.getDouble();
+        prevYPos = in.getDouble();
+        vx = in.getDouble();
+        vy = in.getDouble();
+        setInputMask(in.get());
+        int flags = in.get();
+        isAlive = (flags & 1) != 0;
+        onRestSpot = (flags & 2) != 0;
+        xLocation = (int) Math.round(xPos);
+        yLocation = (int) Math.round(yPos);
+    }
+
+    /**
+     * Sets how long one tick is relative to the 16 ms tick the movement constants were
+     * tuned for, so a slower tick rate covers the same ground per second.
+     */
+    public void setTickScale(double tickScale) {
+        this.tickScale = tickScale;
+        this.tickFriction = Math.pow(FRICTION, tickScale);
+    }
+
+    /**
+     * Sets the size of the world the sheep is kept inside; the screen-sized field unless
+     * the world is streamed in chunks.
+     */
+    public void setWorldSize(int worldWidth, int worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+    }
+
+    /**
+     * @return the x location blended between the previous and current tick
+     */
+    public int getInterpolatedX(double alpha) {
+        return (int) Math.round(prevXPos + (xPos - prevXPos) * alpha);
+    }
+
+    /**
+     * @return the y location blended between the previous and current tick
+     */
+    public int getInterpolatedY(double alpha) {
+        return (int) Math.round(prevYPos + (yPos - prevYPos) * alpha);
+    }
+
     public void tick() {
+        prevXPos = xPos;
+        prevYPos = yPos;
+
         // Apply acceleration for held directions (unchanged by fatigue)
-        if (movingUp) vy -= acceleration;
-        if (movingDown) vy += acceleration;
-        if (movingLeft) vx -= acceleration;
-        if (movingRight) vx += acceleration;
+        double accel = acceleration * tickScale;
+        if (movingUp) vy -= accel;
+        if (movingDown) vy += accel;
+        if (movingLeft) vx -= accel;
+        if (movingRight) vx += accel;
 
         // Apply friction
-        vx *= FRICTION;
-        vy *= FRICTION;
+        vx *= tickFriction;
+        vy *= tickFriction;
 
         // Compute effective max speed based on fatigue
         double exhaustionRatio = fatigue / MAX_FATIGUE;
@@ -210,14 +348,14 @@ public class Sheep extends LocatableShape implements Moveable {
         if (Math.abs(vy) < 0.1) vy = 0;
 
         // Update precise position
-        xPos += vx;
-        yPos += vy;
+        xPos += vx * tickScale;
+        yPos += vy * tickScale;
 
         // Clamp position to game bounds
         if (xPos < 0) { xPos = 0; vx = 0; }
         if (yPos < 0) { yPos = 0; vy = 0; }
-        if (xPos + width > SheepGame.GAME_SIZE_X) { xPos = SheepGame.GAME_SIZE_X - width; vx = 0; }
-        if (yPos + height > SheepGame.GAME_SIZE_Y) { yPos = SheepGame.GAME_SIZE_Y - height; vy = 0; }
+        if (xPos + width > worldWidth) { xPos = worldWidth - width; vx = 0; }
+        if (yPos + height > worldHeight) { yPos = worldHeight - height; vy = 0; }
 
         // Sync int locations for rendering and collision
         xLocation = (int) Math.round(xPos);
@@ -227,15 +365,29 @@ public class Sheep extends LocatableShape implements Moveable {
         double currentSpeed = Math.hypot(vx, vy);
         double speedRatio = currentSpeed / maxSpeed;
         if (speedRatio > 0.1) {
-            fatigue += BASE_FATIGUE_RATE * speedRatio * fatigueScale;
+            fatigue += BASE_FATIGUE_RATE * speedRatio * fatigueScale * tickScale;
         } else if (!onRestSpot) {
-            fatigue -= FATIGUE_RECOVERY_IDLE / fatigueScale;
+            fatigue -= FATIGUE_RECOVERY_IDLE / fatigueScale * tickScale;
         }
         fatigue = Math.max(0.0, Math.min(MAX_FATIGUE, fatigue));
     }
 
+    /**
+     * Advances hunger and thirst by one step. The simulation calls this once per
+     * second of simulated time.
+     */
+    public void tickVitals() {
+        hunger++;
+        thirst++;
+
+        if (hunger >= MAX_HUNGER || thirst >= MAX_THIRST) {
+            die();
+        }
+    }
+
     public void eat(Grass g) {
-        if (g.getEaten()) {
+        // Reads the patch without using it up; the engine removes a patch once it is eaten
+        if (g.canBeEaten()) {
             hunger = max(0, hunger - g.getNutritiousness());
         }
     }
@@ -245,12 +397,18 @@ public class Sheep extends LocatableShape implements Moveable {
     }
 
     public void rest(RestingSpot rs) {
-        fatigue = Math.max(0.0, fatigue - rs.getRestPower());
+        fatigue = Math.max(0.0, fatigue - rs.getRestPower() * tickScale);
     }
 
     public void die() {
         isAlive = false;
-        timer.stop();
     }
 
+    // Paint constants, held apart so that simulating the sheep never initialises AWT
+    private static final class Palette {
+        static final Color LEG_COLOR = new Color(80, 80, 80);
+        static final Color PUFF_COLOR = new Color(220, 220, 220);
+        static final Color OUTLINE_COLOR = new Color(180, 180, 180);
+        static final Color HEAD_COLOR = new Color(50, 50, 50);
+    }
 }
@@ -0,0 +1,253 @@
+package com.saygindogu.sheepgame.model;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Bounded LRU cache of pre-rendered entity sprites. An entity paints itself once into an
+ * offscreen image; afterwards every repaint is a single {@code drawImage}. Sprites are
+ * keyed by entity type, size, visual state and a per-entity variant (the seed its random
+ * detail is drawn from), so identical-looking entities share one image.
+ *
+ * Images are created compatible with the screen when there is one, which lets Java2D
+ * keep an accelerated copy of them; the cache never relies on {@code VolatileImage}
+ * contents that the system may drop. Total pixel memory is capped and the least
+ * recently drawn sprites are evicted first.
+ *
+ * Sprites live in an open-addressing table keyed by the primitive key, with the LRU order
+ * threaded through the table slots, so a cache hit allocates nothing.
+ */
+public final class SpriteCache {
+
+    public static final int TYPE_GRASS = 1;
+    public static final int TYPE_WATER = 2;
+    public static final int TYPE_RESTING_SPOT = 3;
+    public static final int TYPE_SHEEP = 4;
+    public static final int TYPE_WOLF = 5;
+
+    /** Transparent margin around the entity bounds, for details drawn slightly outside them. */
+    public static final int PAD = 16;
+
+    private static final long DEFAULT_BUDGET_BYTES =
+            Long.getLong("sheepgame.spriteCacheMB", 32) * 1024 * 1024;
+    private static final SpriteCache SHARED = new SpriteCache(DEFAULT_BUDGET_BYTES);
+
+    /**
+     * Paints an entity with its top-left corner at (x, y).
+     */
+    public interface Painter {
+        void paint(Graphics2D g, int x, int y);
+    }
+
+    private static final int NONE = -1;
+
+    private final long budgetBytes;
+    private long usedBytes;
+    private int size;
+    // Slot i holds keys[i] -> images[i]; an empty slot has a null image
+    private long[] keys;
+    private BufferedImage[] images;
+    // LRU order through occupied slots, from eldest to newest
+    private int[] older;
+    private int[] newer;
+    private int eldest = NONE;
+    private int newest = NONE;
+
+    public SpriteCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        allocate(256);
+    }
+
+    public static SpriteCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Packs a sprite key. Width and height must fit in 12 bits each, state in 4 bits.
+     */
+    public static long key(int type, int state, int width, int height, int variant) {
+        return ((long) type << 60)
+                | ((long) (state & 0xF) << 56)
+                | ((long) (width & 0xFFF) << 44)
+                | ((long) (height & 0xFFF) << 32)
+                | (variant & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Draws the sprite for {@code key} with the entity's top-left corner at (x, y),
+     * painting and caching it first if needed.
+     */
+    public void draw(Graphics g, long key, int x, int y, int width, int height, Painter painter) {
+        BufferedImage sprite = get(key, width, height, painter);
+        g.drawImage(sprite, x - PAD, y - PAD, null);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized void clear() {
+        allocate(keys.length);
+        size = 0;
+        usedBytes = 0;
+    }
+
+    private synchronized BufferedImage get(long key, int width, int height, Painter painter) {
+        int slot = find(key);
+        if (images[slot] != null) {
+            unlink(slot);
+            linkNewest(slot);
+            return images[slot];
+        }
+
+        BufferedImage sprite = render(width, height, painter);
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+            slot = find(key);
+        }
+        keys[slot] = key;
+        images[slot] = sprite;
+        linkNewest(slot);
+        size++;
+        usedBytes += bytes(sprite);
+        evict();
+        return sprite;
+    }
+
+    private void evict() {
+        // Always keep the most recent sprite, even if it alone exceeds the budget
+        while (usedBytes > budgetBytes && size > 1) {
+            usedBytes -= bytes(images[eldest]);
+            remove(eldest);
+        }
+    }
+
+    /**
+     * @return the slot holding {@code key}, or the empty slot where it would go
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (images[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void remove(int slot) {
+        unlink(slot);
+        images[slot] = null;
+        size--;
+
+        // Backward-shift deletion keeps every probe chain unbroken
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; images[i] != null; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                move(i, hole);
+                hole = i;
+            }
+        }
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        images[to] = images[from];
+        older[to] = older[from];
+        newer[to] = newer[from];
+        images[from] = null;
+        if (older[to] == NONE) {
+            eldest = to;
+        } else {
+            newer[older[to]] = to;
+        }
+        if (newer[to] == NONE) {
+            newest = to;
+        } else {
+            older[newer[to]] = to;
+        }
+    }
+
+    private void unlink(int slot) {
+        if (older[slot] == NONE) {
+            eldest = newer[slot];
+        } else {
+            newer[older[slot]] = newer[slot];
+        }
+        if (newer[slot] == NONE) {
+            newest = older[slot];
+        } else {
+            older[newer[slot]] = older[slot];
+        }
+    }
+
+    private void linkNewest(int slot) {
+        older[slot] = newest;
+        newer[slot] = NONE;
+        if (newest == NONE) {
+            eldest = slot;
+        } else {
+            newer[newest] = slot;
+        }
+        newest = slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        BufferedImage[] oldImages = images;
+        int[] oldNewer = newer;
+        int from = eldest;
+        allocate(capacity);
+        // Reinsert eldest first so the LRU order survives
+        for (int i = from; i != NONE; i = oldNewer[i]) {
+            int slot = find(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            images[slot] = oldImages[i];
+            linkNewest(slot);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        images = new BufferedImage[capacity];
+        older = new int[capacity];
+        newer = new int[capacity];
+        eldest = NONE;
+        newest = NONE;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static BufferedImage render(int width, int height, Painter painter) {
+        BufferedImage image = createImage(width + 2 * PAD, height + 2 * PAD);
+        Graphics2D g2 = image.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        painter.paint(g2, PAD, PAD);
+        g2.dispose();
+        return image;
+    }
+
+    private static BufferedImage createImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+
+    private static long bytes(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+}
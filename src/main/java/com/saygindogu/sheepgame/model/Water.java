@@ -7,7 +7,7 @@ import java.awt.Color;
 import java.awt.GradientPaint;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 public class Water extends LocatableShape {
@@ -22,6 +22,9 @@ public class Water extends LocatableShape {
 	private int locationX;
 	@Getter
 	private int locationY;
+	// Bound on first draw and kept, so drawing a cached sprite allocates nothing and
+	// resources that are only simulated carry no painter
+	private SpriteCache.Painter painter;
 
 	public Water( int volume, int x, int y, int width , int height){
 		this.volume = volume;
@@ -32,34 +35,64 @@ public class Water extends LocatableShape {
 		this.height = height;
 	}
 
+	public void writeState( ByteBuffer out){
+		out.putInt( locationX);
+		out.putInt( locationY);
+		out.putInt( width);
+		out.putInt( height);
+		out.putInt( volume);
+	}
+
+	/**
+	 * @return a puddle restored from {@link #writeState(ByteBuffer)}
+	 */
+	public static Water readState( ByteBuffer in){
+		int x = in.getInt();
+		int y = in.getInt();
+		int width = in.getInt();
+		int height = in.getInt();
+		return new Water( in.getInt(), x, y, width, height);
+	}
+
 	@Override
 	public void draw(Graphics g) {
-		Graphics2D g2 = (Graphics2D) g.create();
-		g2.setRenderingHint( RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		long key = SpriteCache.key( SpriteCache.TYPE_WATER, 0, width, height, locationX * 31 + locationY);
+		if( painter == null ){
+			painter = this::paint;
+		}
+		SpriteCache.shared().draw( g, key, locationX, locationY, width, height, painter);
+	}
 
+	private void paint(Graphics2D g2, int x, int y) {
 		// Puddle body with gradient
 		GradientPaint waterGrad = new GradientPaint(
-			locationX, locationY, new Color( 100, 160, 220),
-			locationX, locationY + height, new Color( 30, 80, 160));
+			x, y, Palette.SURFACE_COLOR,
+			x, y + height, Palette.DEPTH_COLOR);
 		g2.setPaint( waterGrad);
-		g2.fillOval( locationX, locationY, width, height);
+		g2.fillOval( x, y, width, height);
 
 		// Lighter rim / highlight
-		g2.setColor( new Color( 150, 200, 255, 100));
-		g2.fillOval( locationX + width / 6, locationY + height / 6, width * 2 / 3, height / 3);
+		g2.setColor( Palette.HIGHLIGHT_COLOR);
+		g2.fillOval( x + width / 6, y + height / 6, width * 2 / 3, height / 3);
 
 		// Small wave/ripple lines
-		g2.setColor( new Color( 200, 230, 255, 160));
+		g2.setColor( Palette.RIPPLE_COLOR);
 		Random rand = new Random( locationX * 31 + locationY);
 		int rippleCount = Math.max( 2, width / 20);
 		for( int i = 0; i < rippleCount; i++){
-			int rx = locationX + width / 5 + rand.nextInt( width * 3 / 5);
-			int ry = locationY + height / 3 + rand.nextInt( height / 3);
+			int rx = x + width / 5 + rand.nextInt( width * 3 / 5);
+			int ry = y + height / 3 + rand.nextInt( height / 3);
 			int rw = 6 + rand.nextInt( 10);
 			g2.drawArc( rx, ry, rw, 4, 0, 180);
 		}
+	}
 
-		g2.dispose();
+	// Paint constants, held apart so that simulating water never initialises AWT
+	private static final class Palette {
+		static final Color SURFACE_COLOR = new Color( 100, 160, 220);
+		static final Color DEPTH_COLOR = new Color( 30, 80, 160);
+		static final Color HIGHLIGHT_COLOR = new Color( 150, 200, 255, 100);
+		static final Color RIPPLE_COLOR = new Color( 200, 230, 255, 160);
 	}
 
 }
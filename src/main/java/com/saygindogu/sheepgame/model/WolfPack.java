@@ -0,0 +1,706 @@
+package com.saygindogu.sheepgame.model;
+
+import com.saygindogu.sheepgame.SheepGame;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Structure-of-arrays store for wolf state. Every wolf in a pack lives in one slot of a
+ * set of parallel primitive arrays, so {@link #tick(int, int)} advances the whole pack
+ * in a single pass over contiguous memory. {@link Wolf} objects are thin handles onto a
+ * slot, kept for rendering and collision code that works with shapes.
+ *
+ * Each slot carries its own random stream, stepped with the same generator as
+ * {@link java.util.Random}, so a wolf seeded with {@code s} behaves exactly like one
+ * driven by {@code new Random(s)}.
+ *
+ * When the {@code jdk.incubator.vector} module is available, large packs take a SIMD
+ * path for the distance, hysteresis and move math. Both paths use the same operations
+ * in the same order and produce bit-identical results; set
+ * {@code -Dsheepgame.simd=false} to force the scalar loop.
+ *
+ * Chasing wolves steer by a shared {@link FlowField} when one is set and it has
+ * obstacles; otherwise they head straight for the sheep. With a {@link Flock}, each wolf
+ * goes for whichever sheep is nearest, and only wolves after the leader steer by the
+ * field, which points at it.
+ *
+ * Roaming wolves far from the sheep are simulated at a lower level of detail: once a
+ * full tick finds a wolf too far away to reach its chase radius or its waypoint for a
+ * while, even if the sheep runs straight at it, the wolf coasts along its leg for that
+ * many ticks. Coasting places it at {@code start + k * step}, with no distance,
+ * hysteresis or waypoint tests. The wolf then goes back to full ticks before either
+ * test could fire, so nothing changes near the sheep. How long a coast may last is set
+ * by {@link #setLevelOfDetail}.
+ *
+ * A wolf's tick reads the sheep, the flock and the flow field but writes only its own
+ * slot, so large packs are split into ranges ticked across the fork/join pool, and get
+ * bit-identical results on any number of threads. Contacts are left to the caller, to
+ * resolve in slot order once every wolf has moved.
+ */
+public class WolfPack {
+
+    static final byte ROAMING = 0;
+    static final byte CHASING = 1;
+
+    public static final int WIDTH = 36;
+    public static final int HEIGHT = 36;
+    static final double CHASE_EXIT_FACTOR = 1.4;
+
+    // Below this many wolves the vector path costs more than it saves
+    private static final int SIMD_MIN_PACK_SIZE = 64;
+    private static final boolean SIMD_AVAILABLE =
+            !"false".equals(System.getProperty("sheepgame.simd"))
+                    && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    // Below this many wolves forking costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 4096;
+    // A multiple of every vector length; ranges start on multiples of it, so only the last
+    // range of the pack ends in a scalar tail
+    private static final int LEAF_SIZE = 1024;
+
+    // Coasts shorter than this are not worth starting
+    private static final int MIN_COAST_TICKS = 4;
+    // Covers the sheep's location being rounded to whole pixels
+    private static final double COAST_MARGIN = 2;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    int size;
+    // Tick length relative to the 16 ms tick the speeds were tuned for
+    double tickScale = 1.0;
+    // Wolves are kept inside the world, and spawn on the edges of and roam within the
+    // roam area; both are the screen-sized field unless the world is streamed in chunks
+    int worldWidth = SheepGame.GAME_SIZE_X;
+    int worldHeight = SheepGame.GAME_SIZE_Y;
+    int roamX;
+    int roamY;
+    int roamWidth = SheepGame.GAME_SIZE_X;
+    int roamHeight = SheepGame.GAME_SIZE_Y;
+    // Longest coast, 0 for full ticks throughout, and the farthest the sheep moves in a tick
+    int maxCoastTicks;
+    double sheepMaxStep;
+    double[] xPos;
+    double[] yPos;
+    double[] prevXPos;
+    double[] prevYPos;
+    int[] xLocation;
+    int[] yLocation;
+    double[] waypointX;
+    double[] waypointY;
+    double[] chaseSpeed;
+    double[] roamSpeed;
+    double[] detectionRadius;
+    byte[] state;
+    long[] rngState;
+    // A coasting wolf is at coastStart + coastElapsed * coastStep until coastElapsed
+    // reaches coastLength; coastLength is 0 for wolves on full ticks
+    double[] coastStartX;
+    double[] coastStartY;
+    double[] coastStepX;
+    double[] coastStepY;
+    int[] coastElapsed;
+    int[] coastLength;
+    // Counted once a pack tick is over, since its workers share no counters
+    int coastingCount;
+    Wolf[] handles;
+    FlowField flowField;
+
+    // The tick in progress, read by every worker; no flock means every wolf chases the sheep
+    private int tickSheepX;
+    private int tickSheepY;
+    private Flock tickFlock;
+    private boolean tickVector;
+
+    // Per-tick scratch used by the vector path
+    double[] distToSheep;
+    boolean[] entersChase;
+    boolean[] leavesChase;
+    double[] targetX;
+    double[] targetY;
+    double[] speed;
+    double[] preyX;
+    double[] preyY;
+
+    public WolfPack() {
+        this(16);
+    }
+
+    public WolfPack(int initialCapacity) {
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Wolf get(int slot) {
+        return handles[slot];
+    }
+
+    /**
+     * Sets how long one tick is relative to the 16 ms tick the wolf speeds were tuned for.
+     */
+    public void setTickScale(double tickScale) {
+        this.tickScale = tickScale;
+    }
+
+    /**
+     * Sets the size of the world wolves are kept inside.
+     */
+    public void setWorldSize(int worldWidth, int worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+    }
+
+    /**
+     * Lets roaming wolves far from the sheep coast for up to {@code maxCoastTicks} ticks at
+     * a time; 0 runs every wolf on full ticks. Wolves already coasting finish their coast.
+     *
+     * @param sheepMaxStep the farthest the sheep can move in one tick
+     */
+    public void setLevelOfDetail(int maxCoastTicks, double sheepMaxStep) {
+        this.maxCoastTicks = maxCoastTicks;
+        this.sheepMaxStep = sheepMaxStep;
+    }
+
+    /**
+     * Sets the area new wolves spawn on the edges of and roaming wolves pick waypoints in.
+     * Wolves already outside it walk back in on their next waypoint; see
+     * {@link #recallStragglers()} to bring them back at once.
+     */
+    public void setRoamArea(int x, int y, int width, int height) {
+        roamX = x;
+        roamY = y;
+        roamWidth = width;
+        roamHeight = height;
+    }
+
+    /**
+     * Moves every roaming wolf that lies wholly outside the roam area onto a random edge
+     * of it, as if it had just spawned there. Chasing wolves are left to their chase.
+     */
+    public void recallStragglers() {
+        for (int i = 0; i < size; i++) {
+            if (state[i] == ROAMING && (xPos[i] + WIDTH <= roamX || xPos[i] >= roamX + roamWidth
+                    || yPos[i] + HEIGHT <= roamY || yPos[i] >= roamY + roamHeight)) {
+                spawnOnEdge(i);
+            }
+        }
+    }
+
+    /**
+     * Sets the field chasing wolves follow around obstacles, or null to always head
+     * straight for the sheep. The caller keeps it pointed at the sheep.
+     */
+    public void setFlowField(FlowField flowField) {
+        this.flowField = flowField;
+    }
+
+    /**
+     * Adds a wolf on a random edge of the roam area, seeded like {@code new Random(seed)}.
+     *
+     * @return the handle for the new wolf
+     */
+    public Wolf add(double chaseSpeed, double roamSpeed, double detectionRadius, long seed) {
+        int slot = addSlot(chaseSpeed, roamSpeed, detectionRadius, seed);
+        Wolf w = new Wolf(this, slot);
+        handles[slot] = w;
+        return w;
+    }
+
+    int addSlot(double chase, double roam, double detect, long seed) {
+        if (size == xPos.length) {
+            grow(size * 2);
+        }
+        int i = size++;
+        chaseSpeed[i] = chase;
+        roamSpeed[i] = roam;
+        detectionRadius[i] = detect;
+        state[i] = ROAMING;
+        rngState[i] = (seed ^ MULTIPLIER) & MASK;
+        coastLength[i] = 0;
+        spawnOnEdge(i);
+        return i;
+    }
+
+    private void spawnOnEdge(int i) {
+        int edge = nextInt(i, 4);
+        switch (edge) {
+            case 0: // top
+                xPos[i] = roamX + nextInt(i, roamWidth);
+                yPos[i] = roamY;
+                break;
+            case 1: // bottom
+                xPos[i] = roamX + nextInt(i, roamWidth);
+                yPos[i] = roamY + roamHeight - HEIGHT;
+                break;
+            case 2: // left
+                xPos[i] = roamX;
+                yPos[i] = roamY + nextInt(i, roamHeight);
+                break;
+            case 3: // right
+                xPos[i] = roamX + roamWidth - WIDTH;
+                yPos[i] = roamY + nextInt(i, roamHeight);
+                break;
+        }
+        xLocation[i] = (int) Math.round(xPos[i]);
+        yLocation[i] = (int) Math.round(yPos[i]);
+        prevXPos[i] = xPos[i];
+        prevYPos[i] = yPos[i];
+        if (coastLength[i] > 0) {
+            coastLength[i] = 0;
+            coastingCount--;
+        }
+        pickNewWaypoint(i);
+    }
+
+    /**
+     * Advances every wolf in the pack by one tick toward or around the sheep.
+     */
+    public void tick(int sheepX, int sheepY) {
+        tick(sheepX, sheepY, null);
+    }
+
+    /**
+     * Advances every wolf in the pack by one tick toward or around the nearest of the
+     * sheep at ({@code sheepX}, {@code sheepY}) and the followers in {@code flock}.
+     */
+    public void tick(int sheepX, int sheepY, Flock flock) {
+        tickSheepX = sheepX;
+        tickSheepY = sheepY;
+        tickFlock = flock != null && flock.size() > 0 ? flock : null;
+        if (tickFlock != null) {
+            // Built here, before any worker queries it, so the workers only ever read the grid
+            tickFlock.ensureGrid();
+        }
+        // The vector path only knows straight pursuit, and only pays off for wolves on full ticks
+        boolean steered = flowField != null && flowField.hasObstacles();
+        tickVector = SIMD_AVAILABLE && size - coastingCount >= SIMD_MIN_PACK_SIZE && !steered;
+        if (size < PARALLEL_THRESHOLD) {
+            step(0, size);
+        } else {
+            new Step(0, size).invoke();
+        }
+        tickFlock = null;
+        coastingCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (coastLength[i] > 0) {
+                coastingCount++;
+            }
+        }
+    }
+
+    // Ticks wolves from through to - 1, touching no other slot
+    private void step(int from, int to) {
+        if (tickFlock != null) {
+            pickPrey(from, to);
+        }
+        System.arraycopy(xPos, from, prevXPos, from, to - from);
+        System.arraycopy(yPos, from, prevYPos, from, to - from);
+        if (tickVector) {
+            WolfPackVectorKernel.tick(this, from, to, tickSheepX, tickSheepY,
+                    tickFlock != null ? preyX : null, tickFlock != null ? preyY : null);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            if (coastLength[i] > 0) {
+                coast(i);
+            } else if (tickFlock == null) {
+                advance(i, tickSheepX, tickSheepY, true);
+            } else {
+                advance(i, preyX[i], preyY[i], preyX[i] == tickSheepX && preyY[i] == tickSheepY);
+            }
+        }
+    }
+
+    private void pickPrey(int from, int to) {
+        // Coasting wolves need no prey until their coast is over
+        for (int i = from; i < to; i++) {
+            if (coastLength[i] > 0) {
+                continue;
+            }
+            preyX[i] = tickSheepX;
+            preyY[i] = tickSheepY;
+            double dx = tickSheepX - xPos[i];
+            double dy = tickSheepY - yPos[i];
+            int j = tickFlock.nearest(xPos[i], yPos[i], Math.min(Math.sqrt(dx * dx + dy * dy), preyReach(i)));
+            if (j >= 0) {
+                preyX[i] = tickFlock.xLocation[j];
+                preyY[i] = tickFlock.yLocation[j];
+            }
+        }
+    }
+
+    void tick(int i, int sheepX, int sheepY) {
+        prevXPos[i] = xPos[i];
+        prevYPos[i] = yPos[i];
+        if (coastLength[i] > 0) {
+            coast(i);
+            if (coastLength[i] == 0) {
+                coastingCount--;
+            }
+        } else {
+            advance(i, sheepX, sheepY, true);
+            if (coastLength[i] > 0) {
+                coastingCount++;
+            }
+        }
+    }
+
+    /**
+     * @param steer whether a chasing wolf may follow the flow field, which points at
+     *              ({@code sheepX}, {@code sheepY})
+     */
+    private void advance(int i, double sheepX, double sheepY, boolean steer) {
+        double dx = sheepX - xPos[i];
+        double dy = sheepY - yPos[i];
+        double distToSheep = Math.sqrt(dx * dx + dy * dy);
+
+        // State transition with 40% hysteresis
+        if (state[i] == ROAMING && distToSheep < detectionRadius[i]) {
+            state[i] = CHASING;
+        } else if (state[i] == CHASING && distToSheep > detectionRadius[i] * CHASE_EXIT_FACTOR) {
+            state[i] = ROAMING;
+            pickNewWaypoint(i);
+        }
+
+        double speed;
+        double targetX;
+        double targetY;
+
+        if (state[i] == CHASING) {
+            speed = chaseSpeed[i] * tickScale;
+            double cx = xPos[i] + WIDTH / 2.0;
+            double cy = yPos[i] + HEIGHT / 2.0;
+            if (!steer || flowField == null || flowField.isDirect(cx, cy)) {
+                targetX = sheepX;
+                targetY = sheepY;
+            } else {
+                // A unit step along the field; move() only uses the direction
+                targetX = xPos[i] + flowField.getDirectionX(cx, cy);
+                targetY = yPos[i] + flowField.getDirectionY(cx, cy);
+            }
+        } else {
+            speed = roamSpeed[i] * tickScale;
+            targetX = waypointX[i];
+            targetY = waypointY[i];
+            // Pick new waypoint if close enough to current one; this tick still heads for the old one
+            if (isNearWaypoint(i, speed)) {
+                pickNewWaypoint(i);
+            }
+        }
+
+        move(i, targetX, targetY, speed);
+        clampAndRound(i);
+        if (state[i] == ROAMING && maxCoastTicks > 0) {
+            startCoast(i, distToSheep, speed);
+        }
+    }
+
+    /**
+     * Starts a coast after a full roaming tick if the wolf is far enough from both the
+     * sheep and its waypoint.
+     *
+     * @param distToSheep the wolf's distance from the sheep at the start of the tick
+     */
+    void startCoast(int i, double distToSheep, double speed) {
+        // A flock is only searched this far, so a nearer follower may lie beyond it
+        distToSheep = Math.min(distToSheep, preyReach(i));
+        // Each tick the wolf and the sheep close by at most speed + sheepMaxStep, and the
+        // chase test skipped on the k-th coasting tick sees them at least k such steps
+        // nearer than distToSheep
+        int ticks = (int) Math.min(maxCoastTicks,
+                (distToSheep - detectionRadius[i] - COAST_MARGIN) / (speed + sheepMaxStep));
+        if (ticks < MIN_COAST_TICKS) {
+            return;
+        }
+        double wdx = waypointX[i] - xPos[i];
+        double wdy = waypointY[i] - yPos[i];
+        double wd = Math.sqrt(wdx * wdx + wdy * wdy);
+        // A full tick picks a new waypoint within two steps of the old one; stop short of that
+        ticks = Math.min(ticks, (int) (wd / speed) - 2);
+        if (ticks < MIN_COAST_TICKS) {
+            return;
+        }
+        coastStartX[i] = xPos[i];
+        coastStartY[i] = yPos[i];
+        coastStepX[i] = wdx / wd * speed;
+        coastStepY[i] = wdy / wd * speed;
+        coastElapsed[i] = 0;
+        coastLength[i] = ticks;
+    }
+
+    /**
+     * @return the distance within which a sheep can affect the wolf before its longest
+     *         coast would end
+     */
+    private double preyReach(int i) {
+        return detectionRadius[i] * CHASE_EXIT_FACTOR
+                + (maxCoastTicks + 1) * (roamSpeed[i] * tickScale + sheepMaxStep) + COAST_MARGIN;
+    }
+
+    /**
+     * One coasting tick: straight along the leg, in closed form.
+     */
+    void coast(int i) {
+        int k = ++coastElapsed[i];
+        xPos[i] = coastStartX[i] + coastStepX[i] * k;
+        yPos[i] = coastStartY[i] + coastStepY[i] * k;
+        if (k == coastLength[i]) {
+            coastLength[i] = 0;
+        }
+        clampAndRound(i);
+    }
+
+    /**
+     * Makes this pack an exact copy of {@code other}, one array copy per field. Handles
+     * for slots that already existed stay valid and now point at the copied wolves. The
+     * level of detail stays as set on this pack.
+     */
+    public void copyFrom(WolfPack other) {
+        int n = other.size;
+        if (n > xPos.length) {
+            grow(n);
+        }
+        size = n;
+        tickScale = other.tickScale;
+        worldWidth = other.worldWidth;
+        worldHeight = other.worldHeight;
+        roamX = other.roamX;
+        roamY = other.roamY;
+        roamWidth = other.roamWidth;
+        roamHeight = other.roamHeight;
+        System.arraycopy(other.xPos, 0, xPos, 0, n);
+        System.arraycopy(other.yPos, 0, yPos, 0, n);
+        System.arraycopy(other.prevXPos, 0, prevXPos, 0, n);
+        System.arraycopy(other.prevYPos, 0, prevYPos, 0, n);
+        System.arraycopy(other.xLocation, 0, xLocation, 0, n);
+        System.arraycopy(other.yLocation, 0, yLocation, 0, n);
+        System.arraycopy(other.waypointX, 0, waypointX, 0, n);
+        System.arraycopy(other.waypointY, 0, waypointY, 0, n);
+        System.arraycopy(other.chaseSpeed, 0, chaseSpeed, 0, n);
+        System.arraycopy(other.roamSpeed, 0, roamSpeed, 0, n);
+        System.arraycopy(other.detectionRadius, 0, detectionRadius, 0, n);
+        System.arraycopy(other.state, 0, state, 0, n);
+        System.arraycopy(other.rngState, 0, rngState, 0, n);
+        System.arraycopy(other.coastStartX, 0, coastStartX, 0, n);
+        System.arraycopy(other.coastStartY, 0, coastStartY, 0, n);
+        System.arraycopy(other.coastStepX, 0, coastStepX, 0, n);
+        System.arraycopy(other.coastStepY, 0, coastStepY, 0, n);
+        System.arraycopy(other.coastElapsed, 0, coastElapsed, 0, n);
+        System.arraycopy(other.coastLength, 0, coastLength, 0, n);
+        coastingCount = other.coastingCount;
+        for (int i = 0; i < n; i++) {
+            if (handles[i] == null) {
+                handles[i] = new Wolf(this, i);
+            }
+        }
+    }
+
+    /**
+     * Writes every wolf's position, waypoint, state, speeds, random stream and, for
+     * coasting wolves, the coast.
+     */
+    public void writeState(ByteBuffer out) {
+        out.putInt(size);
+        for (int i = 0; i < size; i++) {
+            out.putDouble(xPos[i]);
+            out.putDouble(yPos[i]);
+            out.putDouble(prevXPos[i]);
+            out.putDouble(prevYPos[i]);
+            out.putDouble(waypointX[i]);
+            out.putDouble(waypointY[i]);
+            out.putDouble(chaseSpeed[i]);
+            out.putDouble(roamSpeed[i]);
+            out.putDouble(detectionRadius[i]);
+            out.putLong(rngState[i]);
+            out.put(state[i]);
+            out.putInt(coastLength[i]);
+            if (coastLength[i] > 0) {
+                out.putDouble(coastStartX[i]);
+                out.putDouble(coastStartY[i]);
+                out.putDouble(coastStepX[i]);
+                out.putDouble(coastStepY[i]);
+                out.putInt(coastElapsed[i]);
+            }
+        }
+    }
+
+    /**
+     * Replaces the pack with state written by {@link #writeState(ByteBuffer)}. Handles for
+     * slots that already existed stay valid and now point at the restored wolves.
+     */
+    public void readState(ByteBuffer in) {
+        int n = in.getInt();
+        if (n > xPos.length) {
+            grow(n);
+        }
+        size = n;
+        coastingCount = 0;
+        for (int i = 0; i < n; i++) {
+            xPos[i] = in.getDouble();
+            yPos[i] = in.getDouble();
+            prevXPos[i] = in.getDouble();
+            prevYPos[i] = in.getDouble();
+            waypointX[i] = in.getDouble();
+            waypointY[i] = in.getDouble();
+            chaseSpeed[i] = in.getDouble();
+            roamSpeed[i] = in.getDouble();
+            detectionRadius[i] = in.getDouble();
+            rngState[i] = in.getLong();
+            state[i] = in.get();
+            coastLength[i] = in.getInt();
+            if (coastLength[i] > 0) {
+                coastingCount++;
+                coastStartX[i] = in.getDouble();
+                coastStartY[i] = in.getDouble();
+                coastStepX[i] = in.getDouble();
+                coastStepY[i] = in.getDouble();
+                coastElapsed[i] = in.getInt();
+            }
+            xLocation[i] = (int) Math.round(xPos[i]);
+            yLocation[i] = (int) Math.round(yPos[i]);
+            if (handles[i] == null) {
+                handles[i] = new Wolf(this, i);
+            }
+        }
+    }
+
+    boolean isNearWaypoint(int i, double speed) {
+        double wdx = waypointX[i] - xPos[i];
+        double wdy = waypointY[i] - yPos[i];
+        return Math.sqrt(wdx * wdx + wdy * wdy) < speed * 2;
+    }
+
+    void move(int i, double targetX, double targetY, double speed) {
+        double tdx = targetX - xPos[i];
+        double tdy = targetY - yPos[i];
+        double dist = Math.sqrt(tdx * tdx + tdy * tdy);
+        if (dist > 0) {
+            xPos[i] += (tdx / dist) * speed;
+            yPos[i] += (tdy / dist) * speed;
+        }
+    }
+
+    void clampAndRound(int i) {
+        if (xPos[i] < 0) xPos[i] = 0;
+        if (yPos[i] < 0) yPos[i] = 0;
+        if (xPos[i] > worldWidth - WIDTH) xPos[i] = worldWidth - WIDTH;
+        if (yPos[i] > worldHeight - HEIGHT) yPos[i] = worldHeight - HEIGHT;
+
+        xLocation[i] = (int) Math.round(xPos[i]);
+        yLocation[i] = (int) Math.round(yPos[i]);
+    }
+
+    void pickNewWaypoint(int i) {
+        waypointX[i] = roamX + nextInt(i, roamWidth - WIDTH);
+        waypointY[i] = roamY + nextInt(i, roamHeight - HEIGHT);
+    }
+
+    // Same generator and bounded-int algorithm as java.util.Random, state kept per slot
+
+    private int next(int i, int bits) {
+        long s = (rngState[i] * MULTIPLIER + ADDEND) & MASK;
+        rngState[i] = s;
+        return (int) (s >>> (48 - bits));
+    }
+
+    int nextInt(int i, int bound) {
+        int r = next(i, 31);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return (int) ((bound * (long) r) >> 31);
+        }
+        for (int u = r; u - (r = u % bound) + m < 0; u = next(i, 31)) {
+        }
+        return r;
+    }
+
+    private void allocate(int capacity) {
+        xPos = new double[capacity];
+        yPos = new double[capacity];
+        prevXPos = new double[capacity];
+        prevYPos = new double[capacity];
+        xLocation = new int[capacity];
+        yLocation = new int[capacity];
+        waypointX = new double[capacity];
+        waypointY = new double[capacity];
+        chaseSpeed = new double[capacity];
+        roamSpeed = new double[capacity];
+        detectionRadius = new double[capacity];
+        state = new byte[capacity];
+        rngState = new long[capacity];
+        coastStartX = new double[capacity];
+        coastStartY = new double[capacity];
+        coastStepX = new double[capacity];
+        coastStepY = new double[capacity];
+        coastElapsed = new int[capacity];
+        coastLength = new int[capacity];
+        handles = new Wolf[capacity];
+        distToSheep = new double[capacity];
+        entersChase = new boolean[capacity];
+        leavesChase = new boolean[capacity];
+        targetX = new double[capacity];
+        targetY = new double[capacity];
+        speed = new double[capacity];
+        preyX = new double[capacity];
+        preyY = new double[capacity];
+    }
+
+    private void grow(int capacity) {
+        xPos = Arrays.copyOf(xPos, capacity);
+        yPos = Arrays.copyOf(yPos, capacity);
+        prevXPos = Arrays.copyOf(prevXPos, capacity);
+        prevYPos = Arrays.copyOf(prevYPos, capacity);
+        xLocation = Arrays.copyOf(xLocation, capacity);
+        yLocation = Arrays.copyOf(yLocation, capacity);
+        waypointX = Arrays.copyOf(waypointX, capacity);
+        waypointY = Arrays.copyOf(waypointY, capacity);
+        chaseSpeed = Arrays.copyOf(chaseSpeed, capacity);
+        roamSpeed = Arrays.copyOf(roamSpeed, capacity);
+        detectionRadius = Arrays.copyOf(detectionRadius, capacity);
+        state = Arrays.copyOf(state, capacity);
+        rngState = Arrays.copyOf(rngState, capacity);
+        coastStartX = Arrays.copyOf(coastStartX, capacity);
+        coastStartY = Arrays.copyOf(coastStartY, capacity);
+        coastStepX = Arrays.copyOf(coastStepX, capacity);
+        coastStepY = Arrays.copyOf(coastStepY, capacity);
+        coastElapsed = Arrays.copyOf(coastElapsed, capacity);
+        coastLength = Arrays.copyOf(coastLength, capacity);
+        handles = Arrays.copyOf(handles, capacity);
+        distToSheep = new double[capacity];
+        entersChase = new boolean[capacity];
+        leavesChase = new boolean[capacity];
+        targetX = new double[capacity];
+        targetY = new double[capacity];
+        speed = new double[capacity];
+        preyX = new double[capacity];
+        preyY = new double[capacity];
+    }
+
+    // Splits the pack into halves of whole leaves, down to leaves of LEAF_SIZE
+    private final class Step extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        Step(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                step(from, to);
+                return;
+            }
+            // Split on a multiple of LEAF_SIZE, so only the last leaf has a short tail
+            int mid = from + Math.max(1, (to - from) / LEAF_SIZE / 2) * LEAF_SIZE;
+            invokeAll(new Step(from, mid), new Step(mid, to));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.saygindogu.sheepgame.model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD tick for a {@link WolfPack}. Only loaded when the {@code jdk.incubator.vector}
+ * module is present. Distance, hysteresis tests and movement run lane-parallel; state
+ * changes and waypoint picks stay scalar because every wolf draws from its own random
+ * stream. Lane math mirrors the scalar {@link WolfPack} tick operation for operation.
+ * Coasting wolves are moved in pass 2 and given no speed, so the lanes leave them be.
+ */
+final class WolfPackVectorKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private WolfPackVectorKernel() {
+    }
+
+    /**
+     * Ticks wolves {@code from} through {@code to - 1}, each toward its own prey as the
+     * flock tick picked it, or all toward the sheep when {@code preyX} is null.
+     */
+    static void tick(WolfPack p, int from, int to, int sheepX, int sheepY, double[] preyX, double[] preyY) {
+        int upper = from + SPECIES.loopBound(to - from);
+        DoubleVector sx = DoubleVector.broadcast(SPECIES, sheepX);
+        DoubleVector sy = DoubleVector.broadcast(SPECIES, sheepY);
+
+        // Pass 1: distance to the sheep and both hysteresis thresholds
+        int i = from;
+        for (; i < upper; i += SPECIES.length()) {
+            if (preyX != null) {
+                sx = DoubleVector.fromArray(SPECIES, preyX, i);
+                sy = DoubleVector.fromArray(SPECIES, preyY, i);
+            }
+            DoubleVector dx = sx.sub(DoubleVector.fromArray(SPECIES, p.xPos, i));
+            DoubleVector dy = sy.sub(DoubleVector.fromArray(SPECIES, p.yPos, i));
+            DoubleVector dist = dx.mul(dx).add(dy.mul(dy)).sqrt();
+            DoubleVector radius = DoubleVector.fromArray(SPECIES, p.detectionRadius, i);
+            dist.intoArray(p.distToSheep, i);
+            dist.compare(VectorOperators.LT, radius).intoArray(p.entersChase, i);
+            dist.compare(VectorOperators.GT, radius.mul(WolfPack.CHASE_EXIT_FACTOR)).intoArray(p.leavesChase, i);
+        }
+        for (; i < to; i++) {
+            double dx = (preyX != null ? preyX[i] : sheepX) - p.xPos[i];
+            double dy = (preyY != null ? preyY[i] : sheepY) - p.yPos[i];
+            double dist = Math.sqrt(dx * dx + dy * dy);
+            p.distToSheep[i] = dist;
+            p.entersChase[i] = dist < p.detectionRadius[i];
+            p.leavesChase[i] = dist > p.detectionRadius[i] * WolfPack.CHASE_EXIT_FACTOR;
+        }
+
+        // Pass 2: state transitions, targets and waypoint picks
+        for (i = from; i < to; i++) {
+            if (p.coastLength[i] > 0) {
+                p.coast(i);
+                p.speed[i] = 0;
+                p.targetX[i] = p.xPos[i];
+                p.targetY[i] = p.yPos[i];
+                continue;
+            }
+            if (p.state[i] == WolfPack.ROAMING && p.entersChase[i]) {
+                p.state[i] = WolfPack.CHASING;
+            } else if (p.state[i] == WolfPack.CHASING && p.leavesChase[i]) {
+                p.state[i] = WolfPack.ROAMING;
+                p.pickNewWaypoint(i);
+            }
+
+            if (p.state[i] == WolfPack.CHASING) {
+                p.speed[i] = p.chaseSpeed[i] * p.tickScale;
+                p.targetX[i] = preyX != null ? preyX[i] : sheepX;
+                p.targetY[i] = preyY != null ? preyY[i] : sheepY;
+            } else {
+                p.speed[i] = p.roamSpeed[i] * p.tickScale;
+                p.targetX[i] = p.waypointX[i];
+                p.targetY[i] = p.waypointY[i];
+                if (p.isNearWaypoint(i, p.speed[i])) {
+                    p.pickNewWaypoint(i);
+                }
+            }
+        }
+
+        // Pass 3: move toward the target and clamp to the field
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        DoubleVector maxX = DoubleVector.broadcast(SPECIES, p.worldWidth - WolfPack.WIDTH);
+        DoubleVector maxY = DoubleVector.broadcast(SPECIES, p.worldHeight - WolfPack.HEIGHT);
+        for (i = from; i < upper; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, p.xPos, i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, p.yPos, i);
+            DoubleVector speed = DoubleVector.fromArray(SPECIES, p.speed, i);
+            DoubleVector tdx = DoubleVector.fromArray(SPECIES, p.targetX, i).sub(x);
+            DoubleVector tdy = DoubleVector.fromArray(SPECIES, p.targetY, i).sub(y);
+            DoubleVector dist = tdx.mul(tdx).add(tdy.mul(tdy)).sqrt();
+            VectorMask<Double> moving = dist.compare(VectorOperators.GT, 0.0);
+            x = x.add(tdx.div(dist).mul(speed), moving);
+            y = y.add(tdy.div(dist).mul(speed), moving);
+
+            x = x.blend(zero, x.compare(VectorOperators.LT, 0.0));
+            y = y.blend(zero, y.compare(VectorOperators.LT, 0.0));
+            x = x.blend(maxX, x.compare(VectorOperators.GT, maxX));
+            y = y.blend(maxY, y.compare(VectorOperators.GT, maxY));
+            x.intoArray(p.xPos, i);
+            y.intoArray(p.yPos, i);
+        }
+        for (; i < to; i++) {
+            p.move(i, p.targetX[i], p.targetY[i], p.speed[i]);
+            p.clampAndRound(i);
+        }
+        for (i = from; i < upper; i++) {
+            p.xLocation[i] = (int) Math.round(p.xPos[i]);
+            p.yLocation[i] = (int) Math.round(p.yPos[i]);
+        }
+
+        // Pass 4: coasts for wolves that took a full roaming tick, the ones with a speed
+        if (p.maxCoastTicks > 0) {
+            for (i = from; i < to; i++) {
+                if (p.state[i] == WolfPack.ROAMING && p.speed[i] > 0) {
+                    p.startCoast(i, p.distToSheep[i], p.speed[i]);
+                }
+            }
+        }
+    }
+}
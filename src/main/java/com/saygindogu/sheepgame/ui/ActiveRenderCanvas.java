@@ -0,0 +1,224 @@
+package com.saygindogu.sheepgame.ui;
+
+import com.saygindogu.sheepgame.SheepGame;
+import com.saygindogu.sheepgame.engine.WorldFrame;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.DisplayMode;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Active-rendering alternative to {@link SheepGameVisualViewPanel}. A dedicated render
+ * thread draws into a page-flipped {@link BufferStrategy} at its own pace, so frame
+ * timing no longer depends on when Swing gets around to a coalesced repaint on a busy
+ * EDT. Frames are paced to the display's refresh rate (vsync, 60 Hz when the display
+ * does not report one) or capped at a target rate, whichever is slower. The pacing parks
+ * the thread until each frame is due; it does not wait for the vertical blank itself, so
+ * it keeps the loop from burning a core rather than preventing tearing. With both turned
+ * off the loop runs uncapped, yielding between frames.
+ *
+ * Actors are drawn between their previous and current tick positions, so motion stays
+ * smooth when the frame rate is higher than the tick rate.
+ *
+ * In the steady state a frame allocates nothing; with the stats overlay on, the bytes the
+ * render thread allocates per frame are measured and shown next to the frame times.
+ *
+ * The render thread never touches the engine or takes a lock; it draws the latest
+ * {@link WorldFrame} the simulation thread has published.
+ */
+public class ActiveRenderCanvas extends Canvas implements SheepGameView {
+
+	private static final Font DEAD_FONT = new Font( "SansSerif", Font.BOLD, 48);
+	private static final Font HINT_FONT = new Font( "SansSerif", Font.PLAIN, 20);
+	private static final Font STATS_FONT = new Font( "Monospaced", Font.PLAIN, 12);
+	private static final long STATS_TEXT_INTERVAL_NANOS = 500_000_000L;
+	// Paced to when the display does not report its refresh rate
+	private static final int FALLBACK_REFRESH_RATE = 60;
+	private static final com.sun.management.ThreadMXBean ALLOCATION_COUNTER = allocationCounter();
+
+	private final SheepGame game;
+	private final int fpsCap;
+	private final boolean vsync;
+	private final boolean showStats;
+	private final FrameStats stats = new FrameStats( 240);
+	// Only touched by the render thread
+	private final FrameRenderer renderer = new FrameRenderer();
+	private volatile boolean running;
+	private Thread renderThread;
+	private String statsText = "";
+	private long statsTextNanos;
+	private long frameAllocatedBytes = -1;
+
+	/**
+	 * @param fpsCap frames per second to cap at, or 0 for no cap
+	 * @param vsync whether to pace frames to the display's refresh rate
+	 * @param showStats whether to overlay frame-time statistics
+	 */
+	public ActiveRenderCanvas( SheepGame game, int fpsCap, boolean vsync, boolean showStats){
+		this.game = game;
+		this.fpsCap = fpsCap;
+		this.vsync = vsync;
+		this.showStats = showStats;
+		setPreferredSize( new Dimension( SheepGame.GAME_SIZE_X, SheepGame.GAME_SIZE_Y));
+		setIgnoreRepaint( true);
+		setFocusable( false);
+	}
+
+	public FrameStats getStats(){
+		return stats;
+	}
+
+	@Override
+	public void update( SheepGame game){
+		// Frames are produced by the render thread, not by simulation updates
+	}
+
+	@Override
+	public void addNotify(){
+		super.addNotify();
+		running = true;
+		renderThread = new Thread( this::renderLoop, "sheepgame-render");
+		renderThread.setDaemon( true);
+		renderThread.start();
+	}
+
+	@Override
+	public void removeNotify(){
+		running = false;
+		if( renderThread != null ){
+			try{
+				renderThread.join( 1000);
+			}
+			catch( InterruptedException e ){
+				Thread.currentThread().interrupt();
+			}
+			renderThread = null;
+		}
+		super.removeNotify();
+	}
+
+	private void renderLoop(){
+		// Page flipping needs a laid-out, visible peer
+		while( running && (!isShowing() || getWidth() == 0) ){
+			LockSupport.parkNanos( 10_000_000L);
+		}
+		if( !running ){
+			return;
+		}
+		createBufferStrategy( 2);
+		BufferStrategy strategy = getBufferStrategy();
+		long frameNanos = fpsCap > 0 ? 1_000_000_000L / fpsCap : 0;
+		if( vsync ){
+			frameNanos = Math.max( frameNanos, 1_000_000_000L / refreshRate());
+		}
+		long deadline = System.nanoTime();
+		long lastFrame = deadline;
+
+		while( running ){
+			do{
+				do{
+					Graphics g = strategy.getDrawGraphics();
+					try{
+						renderFrame( g);
+					}
+					finally{
+						g.dispose();
+					}
+				} while( strategy.contentsRestored());
+				strategy.show();
+			} while( strategy.contentsLost());
+			// Pushes the flip out to the screen now rather than when the pipeline gets to it
+			Toolkit.getDefaultToolkit().sync();
+
+			long now = System.nanoTime();
+			stats.record( now - lastFrame, frameAllocatedBytes);
+			lastFrame = now;
+
+			if( frameNanos > 0 ){
+				deadline += frameNanos;
+				long wait = deadline - System.nanoTime();
+				if( wait > 0 ){
+					LockSupport.parkNanos( wait);
+				}
+				else if( -wait > frameNanos ){
+					// Fell more than a frame behind; don't try to catch up with a burst
+					deadline = System.nanoTime();
+				}
+			}
+			else{
+				Thread.yield();
+			}
+		}
+	}
+
+	private void renderFrame( Graphics g){
+		boolean measure = showStats && ALLOCATION_COUNTER != null;
+		long allocatedBefore = measure ? ALLOCATION_COUNTER.getCurrentThreadAllocatedBytes() : 0;
+		WorldFrame frame = game.acquireFrame();
+		try{
+			drawFrame( g, frame);
+		}
+		finally{
+			game.releaseFrame( frame);
+		}
+		// The overlay below formats text twice a second, so it is left out of the measurement
+		frameAllocatedBytes = measure ? ALLOCATION_COUNTER.getCurrentThreadAllocatedBytes() - allocatedBefore : -1;
+
+		if( showStats ){
+			long now = System.nanoTime();
+			if( now - statsTextNanos > STATS_TEXT_INTERVAL_NANOS ){
+				statsText = stats.toString();
+				statsTextNanos = now;
+			}
+			g.setFont( STATS_FONT);
+			g.setColor( Color.DARK_GRAY);
+			g.drawString( statsText, 8, 16);
+		}
+	}
+
+	private void drawFrame( Graphics g, WorldFrame frame){
+		renderer.prepare( frame, frame.getInterpolationAlpha( System.nanoTime()), getGraphicsConfiguration(), getBackground());
+
+		g.setColor( getBackground());
+		g.fillRect( 0, 0, getWidth(), getHeight());
+		if( renderer.isOver() ){
+			g.setFont( DEAD_FONT);
+			g.setColor( Color.RED);
+			int cx = getWidth() / 2;
+			int cy = getHeight() / 2;
+			g.drawString( "The Sheep Died!", cx - 140, cy - 20);
+			g.setFont( HINT_FONT);
+			g.setColor( Color.BLACK);
+			g.drawString( "Press any key to return to menu", cx - 170, cy + 30);
+		}
+		else{
+			renderer.draw( g);
+		}
+	}
+
+	private int refreshRate(){
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		DisplayMode mode = gc != null ? gc.getDevice().getDisplayMode() : null;
+		if( mode == null || mode.getRefreshRate() == DisplayMode.REFRESH_RATE_UNKNOWN ){
+			return FALLBACK_REFRESH_RATE;
+		}
+		return mode.getRefreshRate();
+	}
+
+	private static com.sun.management.ThreadMXBean allocationCounter(){
+		if( ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+				&& threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled() ){
+			return threads;
+		}
+		return null;
+	}
+
+}
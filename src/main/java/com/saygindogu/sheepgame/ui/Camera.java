@@ -0,0 +1,56 @@
+package com.saygindogu.sheepgame.ui;
+
+import com.saygindogu.sheepgame.SheepGame;
+import com.saygindogu.sheepgame.engine.WorldFrame;
+import com.saygindogu.sheepgame.model.SpriteCache;
+
+/**
+ * The part of the world on screen: a field-sized view centred on the sheep and held
+ * inside the world, so on the screen-sized field it never moves. Coordinates are the
+ * world's; the view's top-left corner is drawn at the component's.
+ */
+class Camera {
+
+	static final int VIEW_WIDTH = SheepGame.GAME_SIZE_X;
+	static final int VIEW_HEIGHT = SheepGame.GAME_SIZE_Y;
+
+	private int x;
+	private int y;
+
+	/**
+	 * Centres the view on the sheep as drawn at {@code alpha}.
+	 *
+	 * @return whether the view moved
+	 */
+	boolean follow( WorldFrame frame, double alpha){
+		int nx = clamp( frame.getSheepX( alpha) + frame.getSheepWidth() / 2 - VIEW_WIDTH / 2,
+				frame.getWorldWidth() - VIEW_WIDTH);
+		int ny = clamp( frame.getSheepY( alpha) + frame.getSheepHeight() / 2 - VIEW_HEIGHT / 2,
+				frame.getWorldHeight() - VIEW_HEIGHT);
+		boolean moved = nx != x || ny != y;
+		x = nx;
+		y = ny;
+		return moved;
+	}
+
+	int getX(){
+		return x;
+	}
+
+	int getY(){
+		return y;
+	}
+
+	/**
+	 * @return whether a sprite drawn at this box would show in the view
+	 */
+	boolean sees( int left, int top, int width, int height){
+		return left + width + SpriteCache.PAD > x && left - SpriteCache.PAD < x + VIEW_WIDTH
+				&& top + height + SpriteCache.PAD > y && top - SpriteCache.PAD < y + VIEW_HEIGHT;
+	}
+
+	private static int clamp( int v, int max){
+		return v < 0 ? 0 : Math.min( v, Math.max( 0, max));
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.saygindogu.sheepgame.ui;
+
+import com.saygindogu.sheepgame.engine.WorldFrame;
+import com.saygindogu.sheepgame.model.Flock;
+import com.saygindogu.sheepgame.model.Sheep;
+import com.saygindogu.sheepgame.model.Wolf;
+import com.saygindogu.sheepgame.model.WolfPack;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+
+/**
+ * Draws the field from a published {@link WorldFrame}: the baked static layer, then every
+ * wolf and the sheep from the sprite cache at their interpolated positions. The static
+ * layer is only repainted when the frame's version moves, so once warmed up a frame
+ * allocates nothing. Drawing goes through a camera that follows the sheep, and wolves
+ * and followers outside its view are skipped.
+ */
+class FrameRenderer {
+
+	private final StaticLayer staticLayer = new StaticLayer();
+	private final Camera camera = new Camera();
+	private WorldFrame frame;
+	private double alpha;
+	// Reported by the next paint event; one event is reused so drawing allocates nothing
+	private boolean staticLayerRebuilt;
+	private final PaintEvent paintEvent = new PaintEvent();
+
+	/**
+	 * Picks up the frame to draw, blended by {@code alpha} between its previous and
+	 * current tick, and rebuilds the static layer if it is stale.
+	 */
+	void prepare( WorldFrame frame, double alpha, GraphicsConfiguration gc, Color background){
+		this.frame = frame;
+		this.alpha = alpha;
+		if( frame.isOver() ){
+			return;
+		}
+		camera.follow( frame, alpha);
+		if( staticLayer.isStale( frame, camera) ){
+			staticLayer.rebuild( frame, camera, gc, background);
+			staticLayerRebuilt = true;
+		}
+	}
+
+	boolean isOver(){
+		return frame.isOver();
+	}
+
+	void draw( Graphics g){
+		PaintEvent event = paintEvent;
+		event.begin();
+		g.translate( -camera.getX(), -camera.getY());
+		staticLayer.draw( g);
+		int drawn = 1;
+		for( int i = 0; i < frame.getWolfCount(); i++){
+			int x = frame.getWolfX( i, alpha);
+			int y = frame.getWolfY( i, alpha);
+			if( camera.sees( x, y, WolfPack.WIDTH, WolfPack.HEIGHT) ){
+				Wolf.draw( g, x, y, frame.getWolfState( i));
+				drawn++;
+			}
+		}
+		for( int i = 0; i < frame.getFlockSize(); i++){
+			int x = frame.getFlockX( i, alpha);
+			int y = frame.getFlockY( i, alpha);
+			if( camera.sees( x, y, Flock.WIDTH, Flock.HEIGHT) ){
+				Sheep.draw( g, x, y, Flock.WIDTH, Flock.HEIGHT);
+				drawn++;
+			}
+		}
+		Sheep.draw( g, frame.getSheepX( alpha), frame.getSheepY( alpha), frame.getSheepWidth(), frame.getSheepHeight());
+		g.translate( camera.getX(), camera.getY());
+		event.end();
+		if( event.shouldCommit() ){
+			event.renderer = "active";
+			event.actors = 1 + frame.getWolfCount() + frame.getFlockSize();
+			event.drawn = drawn;
+			event.staticLayerRebuilt = staticLayerRebuilt;
+			event.commit();
+		}
+		staticLayerRebuilt = false;
+	}
+
+}
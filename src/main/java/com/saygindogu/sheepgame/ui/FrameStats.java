@@ -0,0 +1,108 @@
+package com.saygindogu.sheepgame.ui;
+
+import java.util.Arrays;
+
+/**
+ * Rolling frame-time statistics over the most recent frames. Recording never allocates;
+ * percentiles sort a reused scratch copy of the window. Bytes allocated per frame are
+ * tracked alongside when the caller can measure them.
+ */
+public class FrameStats {
+
+	private final long[] samples;
+	private final long[] scratch;
+	// Bytes allocated while drawing each frame, or -1 where not measured
+	private final long[] allocated;
+	private int next;
+	private int count;
+	private long totalFrames;
+
+	public FrameStats( int window){
+		samples = new long[ window];
+		scratch = new long[ window];
+		allocated = new long[ window];
+	}
+
+	public void record( long frameNanos){
+		record( frameNanos, -1);
+	}
+
+	/**
+	 * @param allocatedBytes bytes the drawing thread allocated for this frame, or -1 if unknown
+	 */
+	public synchronized void record( long frameNanos, long allocatedBytes){
+		samples[next] = frameNanos;
+		allocated[next] = allocatedBytes;
+		next = (next + 1) % samples.length;
+		if( count < samples.length ){
+			count++;
+		}
+		totalFrames++;
+	}
+
+	public synchronized long getTotalFrames(){
+		return totalFrames;
+	}
+
+	public synchronized double getAverageMillis(){
+		if( count == 0 ){
+			return 0;
+		}
+		long sum = 0;
+		for( int i = 0; i < count; i++){
+			sum += samples[i];
+		}
+		return sum / (double) count / 1e6;
+	}
+
+	public double getFramesPerSecond(){
+		double avg = getAverageMillis();
+		return avg > 0 ? 1000.0 / avg : 0;
+	}
+
+	/**
+	 * @param fraction between 0 and 1, e.g. 0.99 for the 99th percentile
+	 */
+	public synchronized double getPercentileMillis( double fraction){
+		if( count == 0 ){
+			return 0;
+		}
+		System.arraycopy( samples, 0, scratch, 0, count);
+		Arrays.sort( scratch, 0, count);
+		int index = Math.min( count - 1, (int) Math.ceil( fraction * count) - 1);
+		return scratch[ Math.max( 0, index)] / 1e6;
+	}
+
+	public synchronized double getMaxMillis(){
+		long max = 0;
+		for( int i = 0; i < count; i++){
+			max = Math.max( max, samples[i]);
+		}
+		return max / 1e6;
+	}
+
+	/**
+	 * @return average bytes allocated per frame over the measured frames in the window,
+	 *         or -1 if none were measured
+	 */
+	public synchronized double getAverageAllocatedBytes(){
+		long sum = 0;
+		int measured = 0;
+		for( int i = 0; i < count; i++){
+			if( allocated[i] >= 0 ){
+				sum += allocated[i];
+				measured++;
+			}
+		}
+		return measured > 0 ? sum / (double) measured : -1;
+	}
+
+	@Override
+	public String toString(){
+		String text = String.format( "%.0f fps  avg %.2f ms  p99 %.2f ms  max %.2f ms",
+				getFramesPerSecond(), getAverageMillis(), getPercentileMillis( 0.99), getMaxMillis());
+		double bytes = getAverageAllocatedBytes();
+		return bytes >= 0 ? text + String.format( "  alloc %.0f B/frame", bytes) : text;
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.saygindogu.sheepgame.ui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Drawing one frame of the field, by Swing repaints or the active renderer.
+ */
+@Name("com.saygindogu.sheepgame.Paint")
+@Label("Paint")
+@Category({"Sheep Game", "Rendering"})
+@Description("One frame of the field drawn")
+@Enabled(false)
+@StackTrace(false)
+class PaintEvent extends Event {
+
+	@Label("Renderer")
+	String renderer;
+
+	@Label("Actors")
+	@Description("The sheep, wolves and followers in the frame")
+	int actors;
+
+	@Label("Drawn")
+	@Description("Actors inside the clip and the view")
+	int drawn;
+
+	@Label("Static Layer Rebuilt")
+	boolean staticLayerRebuilt;
+}
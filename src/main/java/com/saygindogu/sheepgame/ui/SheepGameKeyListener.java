@@ -1,6 +1,7 @@
 package com.saygindogu.sheepgame.ui;
 
 import com.saygindogu.sheepgame.SheepGame;
+import com.saygindogu.sheepgame.engine.SheepCommand;
 
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
@@ -26,16 +27,16 @@ public class SheepGameKeyListener implements KeyListener{
 			int key = e.getKeyCode();
 
 			if( key == KeyEvent.VK_UP || key == KeyEvent.VK_W ){
-				game.getSheep().goUp();
+				game.submit( SheepCommand.GO_UP);
 			}
 			else if( key == KeyEvent.VK_DOWN || key == KeyEvent.VK_S ){
-				game.getSheep().goDown();
+				game.submit( SheepCommand.GO_DOWN);
 			}
 			else if( key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A ){
-				game.getSheep().goLeft();
+				game.submit( SheepCommand.GO_LEFT);
 			}
 			else if( key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D ){
-				game.getSheep().goRight();
+				game.submit( SheepCommand.GO_RIGHT);
 			}
 		}
 
@@ -44,16 +45,16 @@ public class SheepGameKeyListener implements KeyListener{
 			int key = e.getKeyCode();
 
 			if( key == KeyEvent.VK_UP || key == KeyEvent.VK_W ){
-				game.getSheep().stopUp();
+				game.submit( SheepCommand.STOP_UP);
 			}
 			else if( key == KeyEvent.VK_DOWN || key == KeyEvent.VK_S ){
-				game.getSheep().stopDown();
+				game.submit( SheepCommand.STOP_DOWN);
 			}
 			else if( key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A ){
-				game.getSheep().stopLeft();
+				game.submit( SheepCommand.STOP_LEFT);
 			}
 			else if( key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D ){
-				game.getSheep().stopRight();
+				game.submit( SheepCommand.STOP_RIGHT);
 			}
 		}
 
@@ -1,18 +1,52 @@
 package com.saygindogu.sheepgame.ui;
 
 import com.saygindogu.sheepgame.SheepGame;
-import com.saygindogu.sheepgame.model.Drawable;
+import com.saygindogu.sheepgame.engine.WorldFrame;
+import com.saygindogu.sheepgame.model.Flock;
+import com.saygindogu.sheepgame.model.Sheep;
+import com.saygindogu.sheepgame.model.SpriteCache;
+import com.saygindogu.sheepgame.model.Wolf;
+import com.saygindogu.sheepgame.model.WolfPack;
 
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 
 import javax.swing.JPanel;
 
+/**
+ * Draws the field in two layers. Rest spots and resources only change when something
+ * spawns or gets eaten, so they are baked into an offscreen image that is rebuilt only
+ * when the engine's static layer version moves. Between those changes each update
+ * repaints just the old and new bounds of every moving actor. Actors are drawn between
+ * their previous and current tick positions, so motion stays smooth when ticks are
+ * longer than frames. In a world larger than the field a camera follows the sheep;
+ * while it moves every update repaints the whole view.
+ */
 public class SheepGameVisualViewPanel extends JPanel implements SheepGameView {
 
+	// Past this many actors, one full repaint is cheaper than painting each actor's region
+	private static final int MAX_DIRTY_REGIONS = 64;
+	private static final Font DEAD_FONT = new Font( "SansSerif", Font.BOLD, 48);
+	private static final Font HINT_FONT = new Font( "SansSerif", Font.PLAIN, 20);
+
 	SheepGame game;
+	// Frame from the last update, held until the next one; painting uses it so one repaint
+	// never mixes two ticks
+	WorldFrame frame;
+	StaticLayer staticLayer = new StaticLayer();
+	Camera camera = new Camera();
+	// Interpolated top-left corner of each actor, as last painted: the sheep first, then the wolves, then the followers
+	int[] actorX = new int[0];
+	int[] actorY = new int[0];
+	int actorCount;
+	Rectangle dirty = new Rectangle();
+	Rectangle clip = new Rectangle();
+	// Reused for every paint, as the rectangles are
+	PaintEvent paintEvent = new PaintEvent();
+	boolean gameOverShown;
 
 	public SheepGameVisualViewPanel( SheepGame game){
 		this.game = game;
@@ -22,31 +56,153 @@ public class SheepGameVisualViewPanel extends JPanel implements SheepGameView {
 
 	@Override
 	public void update(SheepGame game) {
-		repaint();
+		WorldFrame next = game.acquireFrame();
+		if( next.isOver() ){
+			hold( next);
+			if( !gameOverShown ){
+				gameOverShown = true;
+				repaint();
+			}
+			return;
+		}
+
+		double alpha = next.getInterpolationAlpha( System.nanoTime());
+		boolean moved = camera.follow( next, alpha);
+		boolean fullRepaint = frame == null || moved || staticLayer.isStale( next, camera);
+		hold( next);
+		int count = actorCount( next);
+		if( fullRepaint || count != actorCount || count > MAX_DIRTY_REGIONS || !isShowing() ){
+			recordActors( alpha);
+			repaint();
+			return;
+		}
+
+		repaintActor( 0, next.getSheepX( alpha), next.getSheepY( alpha), next.getSheepWidth(), next.getSheepHeight());
+		for( int i = 0; i < next.getWolfCount(); i++){
+			repaintActor( i + 1, next.getWolfX( i, alpha), next.getWolfY( i, alpha), WolfPack.WIDTH, WolfPack.HEIGHT);
+		}
+		int first = next.getWolfCount() + 1;
+		for( int i = 0; i < next.getFlockSize(); i++){
+			repaintActor( first + i, next.getFlockX( i, alpha), next.getFlockY( i, alpha), Flock.WIDTH, Flock.HEIGHT);
+		}
 	}
 
 	@Override
 	public void paintComponent( Graphics g){
+		PaintEvent event = paintEvent;
+		event.begin();
+		event.staticLayerRebuilt = false;
+		event.actors = 0;
+		event.drawn = 0;
 		super.paintComponent(g);
+		if( frame == null ){
+			frame = game.acquireFrame();
+		}
 
-		if( game.isGameOver() ){
-			g.setFont( new Font( "SansSerif", Font.BOLD, 48));
+		if( frame.isOver() ){
+			g.setFont( DEAD_FONT);
 			g.setColor( Color.RED);
 			int cx = getBounds().width / 2;
 			int cy = getBounds().height / 2;
 			g.drawString( "The Sheep Died!", cx - 140, cy - 20);
-			g.setFont( new Font( "SansSerif", Font.PLAIN, 20));
+			g.setFont( HINT_FONT);
 			g.setColor( Color.BLACK);
 			g.drawString( "Press any key to return to menu", cx - 170, cy + 30);
 		}
 		else{
-			Drawable[] drawableList = game.getDrawables();
+			if( staticLayer.isStale( frame, camera) ){
+				staticLayer.rebuild( frame, camera, getGraphicsConfiguration(), getBackground());
+				event.staticLayerRebuilt = true;
+			}
+			// From here on everything is in world coordinates, the clip included
+			g.translate( -camera.getX(), -camera.getY());
+			staticLayer.draw( g);
 
-			for( Drawable drawable : drawableList )
-			{
-				drawable.draw(g);
+			if( actorCount != actorCount( frame) ){
+				recordActors( frame.getInterpolationAlpha( System.nanoTime()));
+			}
+			// Left as the whole panel when there is no clip
+			clip.setBounds( camera.getX(), camera.getY(), getWidth(), getHeight());
+			g.getClipBounds( clip);
+			int drawn = 0;
+			for( int i = 0; i < frame.getWolfCount(); i++){
+				if( intersectsSprite( clip, actorX[i + 1], actorY[i + 1], WolfPack.WIDTH, WolfPack.HEIGHT) ){
+					Wolf.draw( g, actorX[i + 1], actorY[i + 1], frame.getWolfState( i));
+					drawn++;
+				}
+			}
+			int first = frame.getWolfCount() + 1;
+			for( int i = 0; i < frame.getFlockSize(); i++){
+				if( intersectsSprite( clip, actorX[first + i], actorY[first + i], Flock.WIDTH, Flock.HEIGHT) ){
+					Sheep.draw( g, actorX[first + i], actorY[first + i], Flock.WIDTH, Flock.HEIGHT);
+					drawn++;
+				}
 			}
+			int width = frame.getSheepWidth();
+			int height = frame.getSheepHeight();
+			if( intersectsSprite( clip, actorX[0], actorY[0], width, height) ){
+				Sheep.draw( g, actorX[0], actorY[0], width, height);
+				drawn++;
+			}
+			g.translate( camera.getX(), camera.getY());
+			event.actors = actorCount;
+			event.drawn = drawn;
+		}
+		event.end();
+		if( event.shouldCommit() ){
+			event.renderer = "swing";
+			event.commit();
 		}
 	}
 
+	private void repaintActor( int index, int x, int y, int width, int height){
+		if( x == actorX[index] && y == actorY[index] ){
+			return;
+		}
+		// The old and new sprite bounds of one actor overlap, so paint them as one region
+		int minX = Math.min( x, actorX[index]) - SpriteCache.PAD;
+		int minY = Math.min( y, actorY[index]) - SpriteCache.PAD;
+		int maxX = Math.max( x, actorX[index]) + width + SpriteCache.PAD;
+		int maxY = Math.max( y, actorY[index]) + height + SpriteCache.PAD;
+		actorX[index] = x;
+		actorY[index] = y;
+		dirty.setBounds( minX - camera.getX(), minY - camera.getY(), maxX - minX, maxY - minY);
+		paintImmediately( dirty);
+	}
+
+	private void hold( WorldFrame next){
+		if( frame != null ){
+			game.releaseFrame( frame);
+		}
+		frame = next;
+	}
+
+	private void recordActors( double alpha){
+		actorCount = actorCount( frame);
+		if( actorX.length < actorCount ){
+			actorX = new int[ actorCount];
+			actorY = new int[ actorCount];
+		}
+		actorX[0] = frame.getSheepX( alpha);
+		actorY[0] = frame.getSheepY( alpha);
+		for( int i = 0; i < frame.getWolfCount(); i++){
+			actorX[i + 1] = frame.getWolfX( i, alpha);
+			actorY[i + 1] = frame.getWolfY( i, alpha);
+		}
+		int first = frame.getWolfCount() + 1;
+		for( int i = 0; i < frame.getFlockSize(); i++){
+			actorX[first + i] = frame.getFlockX( i, alpha);
+			actorY[first + i] = frame.getFlockY( i, alpha);
+		}
+	}
+
+	private static int actorCount( WorldFrame frame){
+		return frame.getWolfCount() + 1 + frame.getFlockSize();
+	}
+
+	private static boolean intersectsSprite( Rectangle clip, int x, int y, int width, int height){
+		return clip.intersects( x - SpriteCache.PAD, y - SpriteCache.PAD,
+				width + 2 * SpriteCache.PAD, height + 2 * SpriteCache.PAD);
+	}
+
 }
@@ -1,8 +1,8 @@
 package com.saygindogu.sheepgame.ui;
 
 import com.saygindogu.sheepgame.SheepGame;
+import com.saygindogu.sheepgame.engine.WorldFrame;
 import com.saygindogu.sheepgame.model.Sheep;
-import com.saygindogu.sheepgame.model.Wolf;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
@@ -50,12 +50,13 @@ public class SheepHungerPanel extends JPanel implements SheepGameView {
 	@Override
 	public void update(SheepGame game) {
 		this.game = game;
+		WorldFrame frame = game.acquireFrame();
 
-		hunger.setValue( Sheep.MAX_HUNGER - game.getSheep().getHunger());
-		thirst.setValue( Sheep.MAX_THIRST - game.getSheep().getThirst());
+		hunger.setValue( Sheep.MAX_HUNGER - frame.getHunger());
+		thirst.setValue( Sheep.MAX_THIRST - frame.getThirst());
 
 		// Stamina bar: full = fresh, empty = exhausted
-		double fatigue = game.getSheep().getFatigue();
+		double fatigue = frame.getFatigue();
 		stamina.setValue( Sheep.MAX_FATIGUE - (int) Math.round(fatigue));
 
 		// Stamina bar color based on fatigue level
@@ -67,18 +68,10 @@ public class SheepHungerPanel extends JPanel implements SheepGameView {
 			stamina.setForeground( new Color( 0x33, 0x99, 0x33)); // default green
 		}
 
-		// Wolf proximity warning — thresholds derived from each wolf's detection radius
-		double nearest = Double.MAX_VALUE;
-		double nearestDetectRadius = 0;
-		int sheepX = game.getSheep().getLocationX();
-		int sheepY = game.getSheep().getLocationY();
-		for( Wolf w : game.getWolves() ){
-			double dist = Math.hypot( w.getLocationX() - sheepX, w.getLocationY() - sheepY);
-			if( dist < nearest ){
-				nearest = dist;
-				nearestDetectRadius = w.getDetectionRadius();
-			}
-		}
+		// Wolf proximity warning — thresholds derived from the nearest wolf's detection radius,
+		// found by the simulation when it published the frame
+		double nearest = frame.getNearestWolfDistance();
+		double nearestDetectRadius = frame.getNearestWolfDetectionRadius();
 		// Red when inside detection radius (wolf is chasing), orange when within 1.5x radius
 		if( nearest <= nearestDetectRadius ){
 			wolfWarning.setText( "WOLF! " + (int) nearest + "px");
@@ -91,6 +84,7 @@ public class SheepHungerPanel extends JPanel implements SheepGameView {
 		} else {
 			wolfWarning.setVisible( false);
 		}
+		game.releaseFrame( frame);
 
 		repaint();
 	}
@@ -0,0 +1,75 @@
+package com.saygindogu.sheepgame.ui;
+
+import com.saygindogu.sheepgame.engine.WorldFrame;
+import com.saygindogu.sheepgame.model.LocatableShape;
+import com.saygindogu.sheepgame.model.SpriteCache;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+
+/**
+ * Offscreen image of everything on the field that does not move: rest spots and
+ * resources. Rebuilt only when the frame's static layer version changes, or in a world
+ * larger than the view when the camera leaves the area baked last time. That area is
+ * the view plus a margin, and only shapes inside it are drawn, so a large world costs
+ * no more to paint than the screen-sized field.
+ */
+class StaticLayer {
+
+	// Scrolling this far from where the image was centred rebakes it
+	private static final int MARGIN = 256;
+
+	private BufferedImage image;
+	private long version = -1;
+	// World position of the image's top-left corner
+	private int originX;
+	private int originY;
+
+	boolean isStale( WorldFrame frame, Camera camera){
+		return image == null || frame.getStaticLayerVersion() != version
+				|| camera.getX() < originX || camera.getY() < originY
+				|| camera.getX() + Camera.VIEW_WIDTH > originX + image.getWidth()
+				|| camera.getY() + Camera.VIEW_HEIGHT > originY + image.getHeight();
+	}
+
+	void rebuild( WorldFrame frame, Camera camera, GraphicsConfiguration gc, Color background){
+		if( image == null ){
+			int width = Math.min( frame.getWorldWidth(), Camera.VIEW_WIDTH + 2 * MARGIN);
+			int height = Math.min( frame.getWorldHeight(), Camera.VIEW_HEIGHT + 2 * MARGIN);
+			image = gc != null
+					? gc.createCompatibleImage( width, height)
+					: new BufferedImage( width, height, BufferedImage.TYPE_INT_RGB);
+		}
+		originX = Math.max( 0, Math.min( camera.getX() - MARGIN, frame.getWorldWidth() - image.getWidth()));
+		originY = Math.max( 0, Math.min( camera.getY() - MARGIN, frame.getWorldHeight() - image.getHeight()));
+		Graphics2D g2 = image.createGraphics();
+		g2.setColor( background);
+		g2.fillRect( 0, 0, image.getWidth(), image.getHeight());
+		g2.translate( -originX, -originY);
+		for( LocatableShape shape : frame.getStaticShapes() ){
+			if( overlapsImage( shape) ){
+				shape.draw( g2);
+			}
+		}
+		g2.dispose();
+		version = frame.getStaticLayerVersion();
+	}
+
+	/**
+	 * Draws the image in world coordinates; translate {@code g} by the camera first.
+	 */
+	void draw( Graphics g){
+		g.drawImage( image, originX, originY, null);
+	}
+
+	private boolean overlapsImage( LocatableShape shape){
+		return shape.getLocationX() + shape.getWidth() + SpriteCache.PAD > originX
+				&& shape.getLocationX() - SpriteCache.PAD < originX + image.getWidth()
+				&& shape.getLocationY() + shape.getHeight() + SpriteCache.PAD > originY
+				&& shape.getLocationY() - SpriteCache.PAD < originY + image.getHeight();
+	}
+
+}
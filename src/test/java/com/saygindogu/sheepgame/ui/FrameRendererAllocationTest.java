@@ -0,0 +1,72 @@
+package com.saygindogu.sheepgame.ui;
+
+import com.saygindogu.sheepgame.SheepGame;
+import com.saygindogu.sheepgame.engine.SimulationEngine;
+import com.saygindogu.sheepgame.engine.WorldFrame;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Once warmed up, drawing a frame into an offscreen image must not allocate; the same
+ * check as {@code FrameBenchmark}'s {@code gc.alloc.rate.norm}, but run on every build.
+ */
+class FrameRendererAllocationTest {
+
+    private static final Color BACKGROUND = new Color(238, 238, 238);
+    // Enough for the JIT to compile the draw path, so escape analysis has done its part
+    private static final int WARMUP_FRAMES = 20_000;
+    private static final int MEASURED_FRAMES = 1_000;
+
+    @Test
+    void steadyStateFramesAllocateNothing() {
+        assertZeroAllocation(SheepGame.GAME_SIZE_X, SheepGame.GAME_SIZE_Y);
+    }
+
+    @Test
+    void steadyStateFramesAllocateNothingInStreamedWorld() {
+        assertZeroAllocation(100_000, 100_000);
+    }
+
+    private static void assertZeroAllocation(int worldWidth, int worldHeight) {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "per-thread allocation counter not available");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                "per-thread allocation counter disabled");
+
+        SimulationEngine engine = new SimulationEngine(5, 1, SimulationEngine.TICK_MILLIS, worldWidth, worldHeight);
+        engine.getSheep().goRight();
+        engine.getSheep().goDown();
+        engine.step(5_000);
+        WorldFrame frame = WorldFrame.capture(engine, null, 0);
+        FrameRenderer renderer = new FrameRenderer();
+        BufferedImage image = new BufferedImage(SheepGame.GAME_SIZE_X, SheepGame.GAME_SIZE_Y, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            for (int i = 0; i < WARMUP_FRAMES; i++) {
+                drawFrame(renderer, frame, g, i);
+            }
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < MEASURED_FRAMES; i++) {
+                drawFrame(renderer, frame, g, i);
+            }
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+            assertEquals(0, allocated, "bytes allocated over " + MEASURED_FRAMES + " frames");
+        } finally {
+            g.dispose();
+        }
+    }
+
+    // Sweeps alpha across the tick, so actors move between frames as they do on screen
+    private static void drawFrame(FrameRenderer renderer, WorldFrame frame, Graphics2D g, int i) {
+        renderer.prepare(frame, (i % 16) / 15.0, null, BACKGROUND);
+        renderer.draw(g);
+    }
+}